@@ -0,0 +1,81 @@
+package dev.notmarra.notlib.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-segment bookkeeping behind a {@link CacheEvictionPolicy}. The segment
+ * reports every insert, hit, miss and removal; when it is over capacity it
+ * asks the policy for a {@link #victim()}.
+ *
+ * Not thread-safe – always used under the owning segment's lock.
+ */
+abstract class AccessPolicy<V> {
+
+    /**
+     * @param capacity     segment capacity in weight units (entries when unweighted)
+     * @param expectedSize expected number of entries, used to size frequency tracking
+     */
+    static <V> AccessPolicy<V> create(CacheEvictionPolicy policy, long capacity, int expectedSize,
+                                      LongAdder admissionRejections) {
+        return switch (policy) {
+            case LRU -> new Linked<>(true);
+            case FIFO, TTL_ONLY -> new Linked<>(false);
+            case W_TINY_LFU -> new TinyLfuPolicy<>(capacity, expectedSize, admissionRejections);
+        };
+    }
+
+    /** A new entry was stored. */
+    abstract void onInsert(CacheEntry<V> e);
+
+    /** An existing entry was read. */
+    abstract void onAccess(CacheEntry<V> e);
+
+    /** A lookup found nothing – frequency-aware policies still count it. */
+    void onMiss(Object key) {}
+
+    /** {@code replacement} takes over the slot of {@code existing} (same key). */
+    abstract void onReplace(CacheEntry<V> existing, CacheEntry<V> replacement);
+
+    /** An entry left the segment for any reason. */
+    abstract void onRemove(CacheEntry<V> e);
+
+    /** A tracked entry's weight changed by {@code delta} (its value was updated in place). */
+    abstract void onWeightChange(CacheEntry<V> e, int delta);
+
+    /** The entry to evict next, or {@code null} if the policy tracks nothing. */
+    abstract CacheEntry<V> victim();
+
+    abstract void clear();
+
+    /** The segment's capacity changed; size-dependent regions follow it. */
+    void resize(long capacity) {}
+
+    // ── LRU / FIFO ───────────────────────────────────────────────────────────
+
+    /** A single queue; LRU moves hits to the tail, FIFO leaves them in place. */
+    private static final class Linked<V> extends AccessPolicy<V> {
+        private final EntryDeque<V> queue = new EntryDeque<>();
+        private final boolean accessOrder;
+
+        Linked(boolean accessOrder) {
+            this.accessOrder = accessOrder;
+        }
+
+        @Override void onInsert(CacheEntry<V> e) { queue.addLast(e); }
+        @Override void onRemove(CacheEntry<V> e) { queue.remove(e); }
+        @Override void onWeightChange(CacheEntry<V> e, int delta) { queue.adjustWeight(delta); }
+        @Override CacheEntry<V> victim()        { return queue.peekFirst(); }
+        @Override void clear()                  { queue.clear(); }
+
+        @Override
+        void onAccess(CacheEntry<V> e) {
+            if (accessOrder) queue.moveToLast(e);
+        }
+
+        @Override
+        void onReplace(CacheEntry<V> existing, CacheEntry<V> replacement) {
+            queue.replace(existing, replacement);
+            onAccess(replacement);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.notmarra.notlib.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter used by {@link CachedRepository} to answer "this
+ * primary key was never stored" without a query.
+ *
+ * {@link #mightContain(Object)} never returns {@code false} for a key that was
+ * {@link #put(Object)}, and returns {@code true} for an absent key with roughly
+ * the configured false-positive probability. Keys cannot be removed; a filter
+ * that has seen many deletes should be rebuilt.
+ *
+ * Bits live in an {@link AtomicLongArray} and are only ever set, so concurrent
+ * puts and lookups need no lock. Probe positions come from double hashing of
+ * the key's {@code hashCode()}.
+ */
+public final class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashes;
+
+    /**
+     * @param expectedInsertions number of keys the filter is sized for
+     * @param falsePositiveRate  target false-positive probability at that size, e.g. {@code 0.01}
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        long n = Math.max(1, expectedInsertions);
+        // m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void put(Object key) {
+        long hash = mix(key == null ? 0 : key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1; // odd stride so probes never collapse onto h1
+        for (int i = 1; i <= hashes; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /** {@code false} means the key was definitely never {@link #put(Object) put}. */
+    public boolean mightContain(Object key) {
+        long hash = mix(key == null ? 0 : key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 1; i <= hashes; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Resets every bit; the filter then answers "absent" for every key. */
+    public void clear() {
+        for (int i = 0; i < bits.length(); i++) bits.set(i, 0L);
+    }
+
+    public long bitSize()      { return bitCount; }
+    public int hashFunctions() { return hashes; }
+
+    // SplitMix64 finaliser: turns a 32-bit hashCode into two independent-looking 32-bit hashes
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,348 @@
+package dev.notmarra.notlib.cache;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Resizes {@link NotCache} instances at runtime between per-cache bounds,
+ * so the capacity follows the load instead of a guessed {@code maxSize}.
+ *
+ * Every interval each tuned cache is looked at once. Heap use here means
+ * the old generation as it was right after the last GC – live data – not the
+ * current heap, which G1 routinely fills with garbage before each young
+ * collection:
+ * <ul>
+ *   <li>heap above {@link Builder#criticalHeapRatio(double)} – shrink by half;</li>
+ *   <li>heap above {@link Builder#highHeapRatio(double)} – never grow, and
+ *       shrink a step if the hit rate can afford it;</li>
+ *   <li>hit rate below {@link Builder#targetHitRate(double)} while entries are
+ *       being evicted for space – grow a step;</li>
+ *   <li>less than half of the capacity in use – shrink a step, but never
+ *       below what is in use.</li>
+ * </ul>
+ * Independently, the tuner asks the JVM to report when the old generation is
+ * still above the critical ratio right after a GC. That notification halves
+ * every cache at once instead of waiting for the next interval. Each resize
+ * is logged together with the numbers that caused it.
+ *
+ * <pre>{@code
+ * CacheAutoTuner tuner = CacheAutoTuner.builder()
+ *         .intervalSeconds(30)
+ *         .targetHitRate(0.9)
+ *         .build();
+ *
+ * tuner.tune("profiles", profileCache, 200, 20_000);
+ *
+ * // on disable
+ * tuner.close();
+ * }</pre>
+ *
+ * {@code DatabaseManager.Builder#autoTuneCaches(int, int)} wires one up for
+ * every cache created with the manager's defaults.
+ */
+public final class CacheAutoTuner {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheAutoTuner.class.getName());
+
+    // Fewer lookups than this in an interval say nothing about the hit rate
+    private static final long MIN_SAMPLE = 100;
+    // Ignore further heap notifications this soon after one was acted on
+    private static final long PRESSURE_COOLDOWN_MILLIS = 5_000L;
+
+    private final double targetHitRate;
+    private final double highHeapRatio;
+    private final double criticalHeapRatio;
+    private final double growFactor;
+    private final double shrinkFactor;
+    private final long defaultMin;
+    private final long defaultMax;
+    private final MaintenanceScheduler maintenance;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    // Tenured pools (G1 Old Gen, PS Old Gen, ...); the young pools support no usage threshold
+    private final List<MemoryPoolMXBean> oldGenPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid()
+                    && pool.isUsageThresholdSupported() && pool.isCollectionUsageThresholdSupported())
+            .toList();
+
+    private final Map<String, Tuned> caches = new ConcurrentHashMap<>();
+    private final AtomicLong lastPressureShrink = new AtomicLong();
+    private final MaintenanceScheduler.Task tuneTask;
+    private final NotificationListener heapListener;
+
+    private CacheAutoTuner(Builder b) {
+        this.targetHitRate = b.targetHitRate;
+        this.highHeapRatio = b.highHeapRatio;
+        this.criticalHeapRatio = b.criticalHeapRatio;
+        this.growFactor = b.growFactor;
+        this.shrinkFactor = b.shrinkFactor;
+        this.defaultMin = b.minSize;
+        this.defaultMax = b.maxSize;
+        this.maintenance = b.maintenance;
+        this.tuneTask = maintenance.scheduleRepeating("CacheAutoTuner", this::tuneAll, b.intervalMillis, b.intervalMillis / 10);
+        this.heapListener = b.heapNotifications ? registerHeapListener() : null;
+    }
+
+    private static final class Tuned {
+        final NotCache<?, ?> cache;
+        final long min;
+        final long max;
+        // Stats at the previous pass; the decision looks at the difference
+        CacheStats last;
+
+        Tuned(NotCache<?, ?> cache, long min, long max) {
+            this.cache = cache;
+            this.min = min;
+            this.max = max;
+            this.last = cache.getStats();
+        }
+    }
+
+    // ── REGISTRATION ─────────────────────────────────────────────────────────
+
+    /** Tunes {@code cache} within the tuner's default bounds. */
+    public void tune(String name, NotCache<?, ?> cache) {
+        tune(name, cache, defaultMin, defaultMax);
+    }
+
+    /**
+     * Tunes {@code cache} between {@code min} and {@code max} (entries, or
+     * weight units for a weighted cache). A capacity outside the bounds is
+     * brought inside them right away.
+     */
+    public void tune(String name, NotCache<?, ?> cache, long min, long max) {
+        if (min < 1 || max < min) throw new IllegalArgumentException("Need 1 <= min <= max, got " + min + ".." + max);
+        caches.put(name, new Tuned(cache, min, max));
+        long current = cache.capacity();
+        long clamped = Math.max(min, Math.min(max, current));
+        if (clamped != current) resize(name, cache, current, clamped, "outside bounds " + min + ".." + max);
+    }
+
+    public void untune(String name) {
+        caches.remove(name);
+    }
+
+    /** Stops tuning and removes the heap listener; the caches keep their current capacity. */
+    public void close() {
+        tuneTask.cancel();
+        caches.clear();
+        if (heapListener != null) {
+            try {
+                ((NotificationEmitter) memory).removeNotificationListener(heapListener);
+            } catch (ListenerNotFoundException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    // ── DECISIONS ────────────────────────────────────────────────────────────
+
+    /** Runs one tuning pass now instead of waiting for the interval. */
+    public void tuneAll() {
+        double heap = oldGenRatio();
+        caches.forEach((name, tuned) -> tuneOne(name, tuned, heap));
+    }
+
+    private void tuneOne(String name, Tuned tuned, double heap) {
+        NotCache<?, ?> cache = tuned.cache;
+        CacheStats now = cache.getStats();
+        CacheStats before = tuned.last;
+        tuned.last = now;
+
+        long hits = Math.max(0, now.hits() - before.hits());
+        long misses = Math.max(0, now.misses() - before.misses());
+        long evictions = Math.max(0, now.evictions() - before.evictions());
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 1.0 : (double) hits / lookups;
+        long capacity = cache.capacity();
+        long used = cache.weightedSize();
+
+        long target = capacity;
+        String reason = null;
+        if (heap >= criticalHeapRatio) {
+            target = capacity / 2;
+            reason = "heap critical";
+        } else if (heap >= highHeapRatio) {
+            if (lookups >= MIN_SAMPLE && hitRate >= targetHitRate) {
+                target = (long) (capacity * shrinkFactor);
+                reason = "heap high, hit rate on target";
+            }
+        } else if (lookups >= MIN_SAMPLE && hitRate < targetHitRate && evictions > 0) {
+            target = (long) Math.ceil(capacity * growFactor);
+            reason = "hit rate below target with " + evictions + " evictions";
+        } else if (used < capacity / 2) {
+            target = Math.max(used, (long) (capacity * shrinkFactor));
+            reason = "under half full";
+        }
+
+        target = Math.max(tuned.min, Math.min(tuned.max, target));
+        if (reason == null || target == capacity) return;
+        LOGGER.info(String.format("[CacheAutoTuner] %s: %d -> %d (%s; hitRate=%.1f%% over %d lookups, used=%d, oldGen=%.0f%% after GC)",
+                name, capacity, target, reason, hitRate * 100, lookups, used, heap * 100));
+        cache.resize(target);
+    }
+
+    /** Halves every cache; called when the old generation stays full after a GC. */
+    private void onHeapPressure(long used, long max) {
+        long now = System.currentTimeMillis();
+        long last = lastPressureShrink.get();
+        if (now - last < PRESSURE_COOLDOWN_MILLIS || !lastPressureShrink.compareAndSet(last, now)) return;
+        String reason = String.format("heap notification, old gen %.0f%% after GC", 100.0 * used / max);
+        caches.forEach((name, tuned) -> {
+            long capacity = tuned.cache.capacity();
+            long target = Math.max(tuned.min, capacity / 2);
+            if (target != capacity) resize(name, tuned.cache, capacity, target, reason);
+        });
+    }
+
+    private void resize(String name, NotCache<?, ?> cache, long from, long to, String reason) {
+        LOGGER.info("[CacheAutoTuner] " + name + ": " + from + " -> " + to + " (" + reason + ")");
+        cache.resize(to);
+    }
+
+    // ── HEAP ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Fullest old-generation pool as of right after its last collection, or
+     * 0 before the first GC. Raw heap use is not looked at on purpose.
+     */
+    private double oldGenRatio() {
+        double ratio = 0.0;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null) continue;
+            long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+            if (max > 0) ratio = Math.max(ratio, (double) usage.getUsed() / max);
+        }
+        return ratio;
+    }
+
+    private NotificationListener registerHeapListener() {
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            long max = pool.getUsage().getMax();
+            if (max <= 0) continue;
+            long threshold = (long) (max * criticalHeapRatio);
+            // The threshold is JVM-wide; never loosen one somebody else set lower
+            long existing = pool.getCollectionUsageThreshold();
+            if (existing == 0 || existing > threshold) pool.setCollectionUsageThreshold(threshold);
+        }
+        NotificationListener listener = (Notification notification, Object handback) -> {
+            if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) return;
+            MemoryUsage usage = MemoryNotificationInfo.from(
+                    (CompositeData) notification.getUserData()).getUsage();
+            long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+            // Leave the JMX notification thread right away; evicting may call removal listeners
+            try {
+                maintenance.schedule("CacheAutoTuner-Pressure", () -> onHeapPressure(usage.getUsed(), max), 0);
+            } catch (RejectedExecutionException e) {
+                onHeapPressure(usage.getUsed(), max);
+            }
+        };
+        ((NotificationEmitter) memory).addNotificationListener(listener, null, null);
+        return listener;
+    }
+
+    // ── BUILDER ──────────────────────────────────────────────────────────────
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long minSize = 100;
+        private long maxSize = 10_000;
+        private double targetHitRate = 0.9;
+        private double highHeapRatio = 0.75;
+        private double criticalHeapRatio = 0.9;
+        private double growFactor = 1.25;
+        private double shrinkFactor = 0.8;
+        private long intervalMillis = 30_000L;
+        private boolean heapNotifications = true;
+        private MaintenanceScheduler maintenance = MaintenanceScheduler.shared();
+
+        /** Default bounds for {@link CacheAutoTuner#tune(String, NotCache)}. */
+        public Builder bounds(long minSize, long maxSize) {
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /** Below this hit rate a cache that is evicting entries grows (default 0.9). */
+        public Builder targetHitRate(double rate) {
+            this.targetHitRate = rate;
+            return this;
+        }
+
+        /** Old-generation use after GC above which caches stop growing (default 0.75). */
+        public Builder highHeapRatio(double ratio) {
+            this.highHeapRatio = ratio;
+            return this;
+        }
+
+        /** Old-generation use after GC above which caches are halved (default 0.9). */
+        public Builder criticalHeapRatio(double ratio) {
+            this.criticalHeapRatio = ratio;
+            return this;
+        }
+
+        /** Step sizes, e.g. {@code 1.25} and {@code 0.8} (the defaults). */
+        public Builder steps(double growFactor, double shrinkFactor) {
+            this.growFactor = growFactor;
+            this.shrinkFactor = shrinkFactor;
+            return this;
+        }
+
+        public Builder intervalSeconds(long seconds) {
+            this.intervalMillis = seconds * 1000L;
+            return this;
+        }
+
+        public Builder intervalMillis(long ms) {
+            this.intervalMillis = ms;
+            return this;
+        }
+
+        /**
+         * Whether to react to the JVM's "old generation still full after GC"
+         * notification between intervals (default true). This sets a
+         * collection usage threshold on the heap pools, which is JVM-wide.
+         */
+        public Builder heapNotifications(boolean enabled) {
+            this.heapNotifications = enabled;
+            return this;
+        }
+
+        public Builder maintenance(MaintenanceScheduler maintenance) {
+            this.maintenance = maintenance;
+            return this;
+        }
+
+        public CacheAutoTuner build() {
+            if (minSize < 1 || maxSize < minSize) {
+                throw new IllegalArgumentException("Need 1 <= minSize <= maxSize, got " + minSize + ".." + maxSize);
+            }
+            if (growFactor <= 1 || shrinkFactor <= 0 || shrinkFactor >= 1) {
+                throw new IllegalArgumentException("growFactor must be > 1 and shrinkFactor between 0 and 1");
+            }
+            if (!(highHeapRatio > 0 && highHeapRatio <= criticalHeapRatio && criticalHeapRatio < 1)) {
+                throw new IllegalArgumentException("Need 0 < highHeapRatio <= criticalHeapRatio < 1");
+            }
+            if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be positive");
+            return new CacheAutoTuner(this);
+        }
+    }
+}
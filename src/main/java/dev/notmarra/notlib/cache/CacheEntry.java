@@ -1,44 +1,101 @@
 package dev.notmarra.notlib.cache;
 
 import java.time.Instant;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a single cached value with TTL and dirty-tracking support.
  *
+ * All timestamps are primitive {@link Ticker} readings (nanoseconds with an
+ * arbitrary origin), so checking expiry or recording an access never
+ * allocates. {@link NotCache} reads its ticker once per operation and passes
+ * the value in; the no-argument variants below read {@link System#nanoTime()}.
+ *
  * @param <V> the type of the cached value
  */
 public class CacheEntry<V> {
+    // Keeps nanoTime deadlines far from overflow; ~146 years is immortal enough
+    private static final long MAX_TTL_MILLIS = Long.MAX_VALUE / 2_000_000L;
+
     private V value;
-    private final Instant createdAt;
-    private Instant lastAccessed;
+    private final long createdAt;
+    private long lastAccessed;
     private final long ttlMillis;
     private boolean dirty;
 
+    // Ticker deadline; only meaningful when ttlMillis > 0. Restarted when a pin is released
+    long expiresAt;
+
+    // Pinned entries are outside the eviction policy and timer wheel and never expire
+    boolean pinned;
+
+    // Write version assigned by NotCache each time the entry is dirtied, so a
+    // flush only clears the version it actually persisted
+    long version;
+
+    // Capacity this entry uses; 1 unless the cache has a weigher
+    int weight = 1;
+
+    // Value as stored by a cache with a ValueCodec; the plain value is null then
+    byte[] encoded;
+
+    // ── POLICY LINKS (owned by NotCache, guarded by the segment lock) ────────
+
+    Object key;
+    CacheEntry<V> prev;
+    CacheEntry<V> next;
+    byte queue;
+    CacheEntry<V> timerPrev;
+    CacheEntry<V> timerNext;
+
     public CacheEntry(V value, long ttlMillis) {
+        this(value, ttlMillis, System.nanoTime());
+    }
+
+    CacheEntry(V value, long ttlMillis, long now) {
         this.value = value;
-        this.createdAt = Instant.now();
-        this.lastAccessed = this.createdAt;
+        this.createdAt = now;
+        this.lastAccessed = now;
         this.ttlMillis = ttlMillis;
         this.dirty = false;
+        this.expiresAt = ttlMillis > 0
+                ? now + TimeUnit.MILLISECONDS.toNanos(Math.min(ttlMillis, MAX_TTL_MILLIS))
+                : 0L;
     }
 
     // ── EXPIRY ───────────────────────────────────────────────────────────────
 
     public boolean isExpired() {
-        if (ttlMillis <= 0) return false; // TTL <= 0 means immortal
-        return Instant.now().isAfter(createdAt.plusMillis(ttlMillis));
+        return isExpired(System.nanoTime());
+    }
+
+    boolean isExpired(long now) {
+        if (ttlMillis <= 0 || pinned) return false; // TTL <= 0 means immortal
+        return now - expiresAt > 0;
+    }
+
+    void restartTtl(long now) {
+        if (ttlMillis > 0) expiresAt = now + TimeUnit.MILLISECONDS.toNanos(Math.min(ttlMillis, MAX_TTL_MILLIS));
     }
 
     public long remainingTtlMillis() {
         if (ttlMillis <= 0) return Long.MAX_VALUE;
-        long elapsed = Instant.now().toEpochMilli() - createdAt.toEpochMilli();
-        return Math.max(0, ttlMillis - elapsed);
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime()));
     }
 
     // ── ACCESS ───────────────────────────────────────────────────────────────
 
     public V getValue() {
-        this.lastAccessed = Instant.now();
+        return getValue(System.nanoTime());
+    }
+
+    V getValue(long now) {
+        this.lastAccessed = now;
+        return value;
+    }
+
+    /** Returns the value without recording an access. */
+    V peekValue() {
         return value;
     }
 
@@ -55,10 +112,19 @@ public class CacheEntry<V> {
 
     // ── META ─────────────────────────────────────────────────────────────────
 
-    public Instant getCreatedAt()    { return createdAt; }
-    public Instant getLastAccessed() { return lastAccessed; }
+    /** Wall-clock creation time, derived on demand from the tick timestamp. */
+    public Instant getCreatedAt()    { return toInstant(createdAt); }
+    /** Wall-clock time of the last read, derived on demand from the tick timestamp. */
+    public Instant getLastAccessed() { return toInstant(lastAccessed); }
     public long getTtlMillis()       { return ttlMillis; }
 
+    long createdAtNanos()    { return createdAt; }
+    long lastAccessedNanos() { return lastAccessed; }
+
+    private static Instant toInstant(long ticks) {
+        return Instant.now().minusNanos(System.nanoTime() - ticks);
+    }
+
     @Override
     public String toString() {
         return "CacheEntry{dirty=" + dirty
@@ -67,4 +133,3 @@ public class CacheEntry<V> {
                 + ", value=" + value + "}";
     }
 }
-
@@ -15,6 +15,16 @@ public enum CacheEvictionPolicy {
      */
     FIFO,
 
+    /**
+     * Window TinyLFU – frequency-aware admission in front of a segmented LRU.
+     * New entries start in a small LRU window; when the cache is full, an entry
+     * leaving the window only displaces a main-space entry if it has been
+     * requested more often recently (tracked by a count-min sketch). Survives
+     * bursts of one-off lookups that would flush the hot set out of a plain LRU.
+     * Rejected newcomers are reported as {@link CacheStats#admissionRejections()}.
+     */
+    W_TINY_LFU,
+
     /**
      * Time To Live only – no size limit; entries are only evicted when they expire.
      * Use this when you control entry count from the outside.
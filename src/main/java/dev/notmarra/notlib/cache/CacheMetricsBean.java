@@ -0,0 +1,126 @@
+package dev.notmarra.notlib.cache;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The registered {@link NotCacheMXBean} of a cache or repository; created by
+ * {@link #register} and removed again by {@link #unregister()} when the
+ * owner shuts down.
+ */
+final class CacheMetricsBean implements NotCacheMXBean {
+    private static final Logger LOGGER = Logger.getLogger(CacheMetricsBean.class.getName());
+    private static final String DOMAIN = "dev.notmarra.notlib";
+    private static final long SNAPSHOT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private record Snapshot(long takenNanos, CacheStats cache, FlushStats flush) {}
+
+    private final ObjectName objectName;
+    private final Supplier<CacheStats> cacheStats;
+    // Null for a bare cache
+    private final Supplier<FlushStats> flushStats;
+    private final Runnable reset;
+    private volatile Snapshot snapshot;
+
+    private CacheMetricsBean(ObjectName objectName, Supplier<CacheStats> cacheStats,
+                             Supplier<FlushStats> flushStats, Runnable reset) {
+        this.objectName = objectName;
+        this.cacheStats = cacheStats;
+        this.flushStats = flushStats;
+        this.reset = reset;
+    }
+
+    /**
+     * Registers the bean with the platform MBean server.
+     *
+     * @return the bean, or {@code null} if the name is taken (e.g. by another
+     *         plugin shading NotLib) or JMX is unavailable – metrics are never
+     *         worth failing startup for
+     */
+    static CacheMetricsBean register(String name, Supplier<CacheStats> cacheStats,
+                                     Supplier<FlushStats> flushStats, Runnable reset) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Cache,name=" + ObjectName.quote(name));
+            CacheMetricsBean bean = new CacheMetricsBean(objectName, cacheStats, flushStats, reset);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            return bean;
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warning("[NotCache] Could not register JMX metrics for '" + name + "': "
+                    + e.getClass().getSimpleName() + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.warning("[NotCache] Could not unregister " + objectName + ": " + e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current == null || now - current.takenNanos() > SNAPSHOT_NANOS) {
+            current = new Snapshot(now, cacheStats.get(), flushStats != null ? flushStats.get() : null);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private CacheStats cache() {
+        return snapshot().cache();
+    }
+
+    private FlushStats flush() {
+        return snapshot().flush();
+    }
+
+    // ── CACHE ────────────────────────────────────────────────────────────────
+
+    @Override public long getHits() { return cache().hits(); }
+    @Override public long getMisses() { return cache().misses(); }
+    @Override public double getHitRate() { return cache().hitRate(); }
+    @Override public long getEvictions() { return cache().evictions(); }
+    @Override public long getExpirations() { return cache().expirations(); }
+    @Override public long getAdmissionRejections() { return cache().admissionRejections(); }
+    @Override public int getSize() { return cache().currentSize(); }
+    @Override public long getCapacity() { return cache().maxSize(); }
+
+    // ── LOADS ────────────────────────────────────────────────────────────────
+
+    @Override public long getLoadSuccesses() { return cache().loadSuccesses(); }
+    @Override public long getLoadFailures() { return cache().loadFailures(); }
+    @Override public double getLoadMeanMillis() { return cache().loadLatency().meanMillis(); }
+    @Override public double getLoadP50Millis() { return cache().loadLatency().p50Millis(); }
+    @Override public double getLoadP99Millis() { return cache().loadLatency().p99Millis(); }
+    @Override public double getLoadMaxMillis() { return cache().loadLatency().maxMillis(); }
+
+    // ── FLUSHES ──────────────────────────────────────────────────────────────
+
+    @Override
+    public int getDirtyBacklog() {
+        FlushStats flush = flush();
+        return flush != null ? flush.dirtyBacklog() : cache().dirtyCount();
+    }
+
+    @Override public long getFlushes() { return flush() != null ? flush().flushes() : 0; }
+    @Override public long getRowsWritten() { return flush() != null ? flush().rowsWritten() : 0; }
+    @Override public long getRowsFailed() { return flush() != null ? flush().rowsFailed() : 0; }
+    @Override public double getFlushP50Millis() { return flush() != null ? flush().flushLatency().p50Millis() : 0; }
+    @Override public double getFlushP99Millis() { return flush() != null ? flush().flushLatency().p99Millis() : 0; }
+    @Override public double getFlushMaxMillis() { return flush() != null ? flush().flushLatency().maxMillis() : 0; }
+
+    @Override
+    public void resetStats() {
+        reset.run();
+        snapshot = null;
+    }
+}
@@ -0,0 +1,136 @@
+package dev.notmarra.notlib.cache;
+
+import dev.notmarra.notlib.database.EntityTable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file of a {@link CachedRepository}'s hottest keys, and optionally
+ * their entities, written on close and read back on the next start.
+ *
+ * <pre>
+ * int    magic "NLCS"
+ * short  format version
+ * long   {@link EntityTable#schemaHash()}
+ * int    record count
+ * record* – most recent first:
+ *   value  key
+ *   byte   1 if the entity follows, 0 for a key only
+ *   entity if flagged, as written by {@link EntityCodec}
+ * value: byte type tag, then the payload (strings as int length + UTF-8)
+ * </pre>
+ *
+ * A file with another magic, version or schema hash is rejected as a whole,
+ * so a changed entity class never gets old bytes mapped onto new fields.
+ */
+final class CacheSnapshot {
+    private static final int MAGIC = 0x4E4C4353; // "NLCS"
+    private static final short VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CacheSnapshot() {}
+
+    /** Key order is most recent first; {@code values.get(key)} is null for keys stored without their entity. */
+    record Contents<K, V>(List<K> keys, Map<K, V> values) {}
+
+    // ── WRITE ────────────────────────────────────────────────────────────────
+
+    /**
+     * Writes {@code entries} (value {@code null} = key only) through a file
+     * channel into a temporary file, then moves it over {@code file}.
+     */
+    static <K, V> void write(Path file, EntityTable<V> table, List<Map.Entry<K, V>> entries, boolean includeValues)
+            throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        EntityCodec<V> codec = new EntityCodec<>(table);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putShort(VERSION).putLong(table.schemaHash()).putInt(entries.size());
+            for (Map.Entry<K, V> e : entries) {
+                V entity = includeValues ? e.getValue() : null;
+                int size = EntityCodec.valueSize(e.getKey()) + 1 + (entity == null ? 0 : codec.sizeOf(entity));
+                ByteBuffer out = buffer;
+                if (size > buffer.remaining()) {
+                    drain(channel, buffer);
+                    if (size > buffer.capacity()) out = ByteBuffer.allocate(size); // one oversized record
+                }
+                EntityCodec.putValue(out, e.getKey());
+                out.put((byte) (entity == null ? 0 : 1));
+                if (entity != null) codec.write(out, entity);
+                if (out != buffer) drain(channel, out);
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    // ── READ ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Reads {@code file} through a file channel and decodes it.
+     *
+     * @return the contents, or {@code null} if the file is missing
+     * @throws IOException if the file is unreadable, truncated or was written
+     *                     for another schema – the caller discards it
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Contents<K, V> read(Path file, EntityTable<V> table) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Read rather than mapped, so the file can be deleted right after on every OS
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("snapshot too large: " + size + " bytes");
+            ByteBuffer in = ByteBuffer.allocate((int) size);
+            while (in.hasRemaining() && channel.read(in) >= 0) {}
+            in.flip();
+            if (in.getInt() != MAGIC) throw new IOException("not a cache snapshot");
+            short version = in.getShort();
+            if (version != VERSION) throw new IOException("snapshot format " + version + ", expected " + VERSION);
+            if (in.getLong() != table.schemaHash()) throw new IOException("written for a different schema of " + table.getTableName());
+            int count = in.getInt();
+            if (count < 0) throw new IOException("corrupt record count " + count);
+
+            EntityCodec<V> codec = new EntityCodec<>(table);
+            List<K> keys = new ArrayList<>(Math.min(count, 1 << 16));
+            Map<K, V> values = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                K key = (K) EntityCodec.getValue(in);
+                keys.add(key);
+                if (in.get() != 0) values.put(key, codec.read(in));
+            }
+            return new Contents<>(keys, values);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated snapshot", e);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("cannot restore " + table.getEntityClass().getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -8,9 +8,35 @@ public record CacheStats(
         long misses,
         long evictions,
         long expirations,
+        long admissionRejections,
         int currentSize,
-        int maxSize
+        int maxSize,
+        int dirtyCount,
+        long storedBytes,
+        long uncompressedBytes,
+        long decodes,
+        long decodeNanos,
+        long decodedHits,
+        long loadSuccesses,
+        long loadFailures,
+        LatencySnapshot loadLatency
 ) {
+    public CacheStats(long hits, long misses, long evictions, long expirations, int currentSize, int maxSize) {
+        this(hits, misses, evictions, expirations, 0, currentSize, maxSize, 0);
+    }
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long admissionRejections,
+                      int currentSize, int maxSize, int dirtyCount) {
+        this(hits, misses, evictions, expirations, admissionRejections, currentSize, maxSize, dirtyCount, 0, 0, 0, 0, 0);
+    }
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long admissionRejections,
+                      int currentSize, int maxSize, int dirtyCount, long storedBytes, long uncompressedBytes,
+                      long decodes, long decodeNanos, long decodedHits) {
+        this(hits, misses, evictions, expirations, admissionRejections, currentSize, maxSize, dirtyCount,
+                storedBytes, uncompressedBytes, decodes, decodeNanos, decodedHits, 0, 0, LatencySnapshot.EMPTY);
+    }
+
     public double hitRate() {
         long total = hits + misses;
         return total == 0 ? 0.0 : (double) hits / total;
@@ -20,11 +46,35 @@ public record CacheStats(
         return 1.0 - hitRate();
     }
 
+    /** Decoded size over stored size of the live values; 1.0 without a {@link ValueCodec}. */
+    public double compressionRatio() {
+        return storedBytes == 0 ? 1.0 : (double) uncompressedBytes / storedBytes;
+    }
+
+    public double avgDecodeMicros() {
+        return decodes == 0 ? 0.0 : decodeNanos / 1000.0 / decodes;
+    }
+
+    /** Share of loader calls that threw; 0.0 before the first load. */
+    public double loadFailureRate() {
+        long total = loadSuccesses + loadFailures;
+        return total == 0 ? 0.0 : (double) loadFailures / total;
+    }
+
     @Override
     public String toString() {
+        String loads = loadSuccesses + loadFailures == 0 ? "" : String.format(
+                ", loads=%d, loadFailures=%d, loadLatency={%s}", loadSuccesses, loadFailures, loadLatency
+        );
+        String codec = storedBytes == 0 && decodes == 0 ? "" : String.format(
+                ", stored=%d B, compression=%.2fx, decodes=%d (avg %.1f us), decodedHits=%d",
+                storedBytes, compressionRatio(), decodes, avgDecodeMicros(), decodedHits
+        );
         return String.format(
-                "CacheStats{hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d, size=%d/%d}",
-                hits, misses, hitRate() * 100, evictions, expirations, currentSize, maxSize
+                "CacheStats{hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d, "
+                        + "admissionRejections=%d, size=%d/%d, dirty=%d%s%s}",
+                hits, misses, hitRate() * 100, evictions, expirations,
+                admissionRejections, currentSize, maxSize, dirtyCount, loads, codec
         );
     }
 }
@@ -4,12 +4,21 @@ import dev.notmarra.notlib.database.Database;
 import dev.notmarra.notlib.database.EntityTable;
 import dev.notmarra.notlib.database.repository.EntityRepository;
 import dev.notmarra.notlib.database.repository.QueryBuilder;
+import dev.notmarra.notlib.database.repository.ResidentRows;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -36,6 +45,15 @@ import java.util.logging.Logger;
  * // writes respect the selected strategy
  * repo.upsert(updatedProfile);
  *
+ * // async reads never block on the DB: hits complete immediately, misses
+ * // share one in-flight CompletableFuture per id, and with
+ * // .refreshAfterWriteSeconds(60) stale hits reload in the background
+ * repo.findByIdAsync(player.getUniqueId()).thenAccept(opt -> ...);
+ *
+ * // with .uniqueIndex("name") / .index("team_id") declared, lookups by
+ * // non-key columns are served from the cached entities
+ * Optional<PlayerProfile> byName = repo.findOneBy("name", "Notch");
+ *
  * // on shutdown – flush all pending writes
  * repo.flush();
  * repo.close();
@@ -53,81 +71,294 @@ public class CachedRepository<K, V> {
     private final EntityRepository<V> repo;
     private final NotCache<K, V> cache;
     private final WriteStrategy writeStrategy;
-    private final Field pkField;
     private final Executor executor;
+    private final long refreshAfterWriteMillis;
+    private final EntityTable<V> table;
+
+    // ── NEGATIVE LOOKUPS ─────────────────────────────────────────────────────
+
+    // Ids recently confirmed missing; null when negative caching is disabled
+    private final NotCache<K, Boolean> absent;
+    // Bloom filter of known ids; only consulted once seeded
+    private volatile BloomFilter bloom;
+    private volatile BloomFilter seeding;
+    private final long bloomExpectedKeys;
+    private final double bloomFalsePositiveRate;
+    private final Object bloomLock = new Object();
+    // Bumped on every write so a load that raced with an insert is not recorded as absent
+    private final AtomicLong writeEpoch = new AtomicLong();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder bloomRejections = new LongAdder();
+
+    // ── SECONDARY INDEXES ────────────────────────────────────────────────────
+
+    // Declared indexes by column name; empty unless the builder declared some
+    private final Map<String, SecondaryIndex<K>> indexes;
+    // Set by findAll() once the whole table is cached; cleared when any row leaves the cache
+    private volatile boolean fullyCached;
+    // Bumped whenever a row leaves the cache, so a lookup can tell it raced an eviction
+    private final AtomicLong residencyEpoch = new AtomicLong();
+    // Whether fullyCached is maintained at all (indexes declared or fully resident mode)
+    private final boolean tracksResidency;
+
+    // ── FULLY RESIDENT MODE ──────────────────────────────────────────────────
+
+    private final boolean resident;
+    private final ResidentRows<V> residentRows = new ResidentTable();
+    private final Object residentLoadLock = new Object();
+    // Set when the cache evicted or expired a row; queries stay on SQL until findAll() reloads
+    private volatile boolean residencyEvicted;
 
     // ── WRITE-BEHIND FLUSH ───────────────────────────────────────────────────
 
-    private final ScheduledExecutorService flushScheduler;
+    private final MaintenanceScheduler maintenance;
+    // Periodic flush; null unless WRITE_BEHIND with a positive interval
+    private final MaintenanceScheduler.Task flushTask;
+    private volatile MaintenanceScheduler.Task evictedWriteTask;
     private final Object flushLock = new Object();
+    private final int flushChunkSize;
+    private final int flushRetries;
+    private final long flushRetryBackoffMillis;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong chunkRetries = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    // Dirty entries the cache evicted or expired before a flush reached them
+    private final ConcurrentHashMap<K, V> evictedWrites = new ConcurrentHashMap<>();
+    private final AtomicBoolean evictedWriteScheduled = new AtomicBoolean();
+    private final long evictedWriteDelayMillis;
+
+    // ── WARM RESTART ─────────────────────────────────────────────────────────
+
+    // Null when snapshots are disabled
+    private final Path snapshotFile;
+    private final boolean snapshotValues;
+    private final int snapshotMaxEntries;
+    private volatile CompletableFuture<Integer> warmUp = CompletableFuture.completedFuture(0);
+
+    // ── PLAYER SESSIONS ──────────────────────────────────────────────────────
+
+    // Keys with an open session; their cache entries are pinned
+    private final Set<K> sessions = ConcurrentHashMap.newKeySet();
+    // Closed sessions waiting for the batched flush and unpin
+    private final ConcurrentHashMap<K, CompletableFuture<Void>> closingSessions = new ConcurrentHashMap<>();
+    private final AtomicBoolean sessionReleaseScheduled = new AtomicBoolean();
+    private volatile MaintenanceScheduler.Task sessionReleaseTask;
+    private final long sessionReleaseDelayMillis;
+    private final AtomicLong sessionPreloads = new AtomicLong();
+    private final AtomicLong sessionsReleased = new AtomicLong();
+    private final AtomicLong preloadNanosTotal = new AtomicLong();
+    private final AtomicLong lastPreloadNanos = new AtomicLong();
+    private final AtomicLong maxPreloadNanos = new AtomicLong();
+
+    // ── JMX ──────────────────────────────────────────────────────────────────
+
+    // Null unless the builder named the repository (or registration failed)
+    private final CacheMetricsBean metricsBean;
 
     // ── CONSTRUCTOR ──────────────────────────────────────────────────────────
 
     @SuppressWarnings("unchecked")
     private CachedRepository(Builder<K, V> b) {
         this.executor = b.executor;
-        this.repo = new EntityRepository<>(b.database, b.entityClass).withExecutor(b.executor);
+        // One EntityTable (generated metadata or reflection) shared with the repository
+        this.table = new EntityTable<>(b.entityClass, b.database.getDialect());
+        if (table.getPrimaryKey().isEmpty()) {
+            throw new IllegalArgumentException(b.entityClass.getName() + " must have a @Column(primaryKey=true) field");
+        }
+        this.repo = new EntityRepository<>(b.database, table).withExecutor(b.executor);
         this.cache = b.cache;
         this.writeStrategy = b.writeStrategy;
+        this.refreshAfterWriteMillis = b.refreshAfterWriteMillis;
+        this.flushChunkSize = b.flushChunkSize;
+        this.flushRetries = b.flushRetries;
+        this.flushRetryBackoffMillis = b.flushRetryBackoffMillis;
+        this.evictedWriteDelayMillis = b.evictedWriteDelayMillis;
+        this.sessionReleaseDelayMillis = b.sessionReleaseDelayMillis;
+        this.snapshotFile = b.snapshotFile;
+        this.snapshotValues = b.snapshotValues;
+        this.snapshotMaxEntries = b.snapshotMaxEntries;
+        this.bloomExpectedKeys = b.bloomExpectedKeys;
+        this.bloomFalsePositiveRate = b.bloomFalsePositiveRate;
+        this.absent = b.negativeTtlMillis > 0
+                ? NotCache.<K, Boolean>builder()
+                        .maxSize(b.negativeMaxSize)
+                        .ttlMillis(b.negativeTtlMillis)
+                        .cleanupIntervalMillis(Math.max(1_000L, b.negativeTtlMillis))
+                        .maintenance(b.maintenance)
+                        .build()
+                : null;
+
+        Map<String, SecondaryIndex<K>> declared = new LinkedHashMap<>();
+        for (IndexSpec spec : b.indexes) {
+            EntityTable.FieldColumn fc = table.getColumns().stream()
+                    .filter(c -> c.annotation().name().equals(spec.column()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(
+                            b.entityClass.getName() + " has no column " + spec.column() + " to index"));
+            if (fc.annotation().primaryKey()) {
+                throw new IllegalArgumentException(spec.column() + " is the primary key – use findById instead of an index");
+            }
+            declared.put(spec.column(), new SecondaryIndex<>(spec.column(), fc.field(), spec.unique(), spec.sorted()));
+        }
+        this.indexes = Collections.unmodifiableMap(declared);
+        this.resident = b.fullyResident;
+        this.tracksResidency = resident || !indexes.isEmpty();
+        if (!indexes.isEmpty()) cache.addWriteObserver(this::syncIndexes);
+        if (tracksResidency) cache.addRemovalListener(this::onTrackedRemoval);
 
-        // Resolve PK field via EntityTable reflection (re-use existing infra)
-        EntityTable<V> table = new EntityTable<>(b.entityClass, b.database.getDialect());
-        this.pkField = table.getPrimaryKey()
-                .map(fc -> fc.field())
-                .orElseThrow(() -> new IllegalArgumentException(
-                        b.entityClass.getName() + " must have a @Column(primaryKey=true) field"));
-        this.pkField.setAccessible(true);
-
-        // Background flush (only relevant for WRITE_BEHIND)
-        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "CachedRepo-Flush");
-            t.setDaemon(true);
-            return t;
-        });
-
-        if (writeStrategy == WriteStrategy.WRITE_BEHIND && b.flushIntervalMillis > 0) {
-            flushScheduler.scheduleAtFixedRate(
-                    this::flush,
-                    b.flushIntervalMillis,
-                    b.flushIntervalMillis,
-                    TimeUnit.MILLISECONDS
-            );
+        if (writeStrategy == WriteStrategy.WRITE_BEHIND) {
+            cache.addRemovalListener(this::onRemoval);
         }
+
+        // Background flush (only relevant for WRITE_BEHIND), spread by jitter across repositories
+        this.maintenance = b.maintenance;
+        this.flushTask = writeStrategy == WriteStrategy.WRITE_BEHIND && b.flushIntervalMillis > 0
+                ? maintenance.scheduleRepeating("CachedRepo-Flush[" + b.entityClass.getSimpleName() + "]", this::flush,
+                        b.flushIntervalMillis, b.flushJitterMillis >= 0 ? b.flushJitterMillis : b.flushIntervalMillis / 10)
+                : null;
+        this.metricsBean = b.jmxName != null
+                ? CacheMetricsBean.register(b.jmxName, cache::getStats, this::getFlushStats, this::resetStats)
+                : null;
     }
 
     // ── CREATE TABLE ─────────────────────────────────────────────────────────
 
+    /**
+     * Creates the table if needed and, when a Bloom filter is configured,
+     * seeds it with a keys-only scan (see {@link #seedBloomFilter()}). A fully
+     * resident repository then loads the whole table; otherwise a
+     * {@link Builder#snapshot(Path, boolean) snapshot} left by the last
+     * {@link #close()} starts loading in the background (see {@link #getWarmUp()}).
+     * {@link dev.notmarra.notlib.database.DatabaseManager#registerCached} calls this on registration.
+     */
     public void createTable() {
         repo.createTable();
+        if (bloomExpectedKeys > 0) seedBloomFilter();
+        if (resident) findAll();
+        else if (snapshotFile != null) warmUp = CompletableFuture.supplyAsync(this::restoreSnapshot, executor);
+    }
+
+    /**
+     * (Re)builds the Bloom filter of known ids from a keys-only scan plus any
+     * unflushed write-behind entries, then swaps it in. Until the first seed
+     * completes the filter is not consulted. Call again after many deletes
+     * to drop their stale bits.
+     */
+    public void seedBloomFilter() {
+        if (bloomExpectedKeys <= 0) throw new IllegalStateException("No Bloom filter configured");
+        synchronized (bloomLock) {
+            BloomFilter next = new BloomFilter(bloomExpectedKeys, bloomFalsePositiveRate);
+            seeding = next; // writes during the scan land here as well
+            try {
+                repo.findAllIds().forEach(next::put);
+                cache.dirtyKeys().forEach(next::put);
+                evictedWrites.keySet().forEach(next::put);
+                bloom = next;
+            } finally {
+                seeding = null;
+            }
+        }
+        LOGGER.info("[CachedRepository] Bloom filter seeded (" + bloom.bitSize() / 8 / 1024 + " KiB, "
+                + bloom.hashFunctions() + " hashes).");
     }
 
     // ── FIND (cache-first) ───────────────────────────────────────────────────
 
+    /**
+     * Cache-first lookup. Concurrent misses for the same id share a single
+     * database query (see {@link NotCache#getOrLoad(Object, java.util.function.Function)}).
+     * With {@link Builder#refreshAfterWriteSeconds(long)} set, an entry past the
+     * threshold is returned immediately and reloaded in the background.
+     */
     public Optional<V> findById(K id) {
-        return cache.get(id).map(Optional::of).orElseGet(() -> {
-            Optional<V> fromDb = repo.findById(id);
-            fromDb.ifPresent(v -> cache.put(id, v));
-            return fromDb;
-        });
+        if (refreshAfterWriteMillis > 0) {
+            return Optional.ofNullable(cache.getOrRefresh(id, this::loadById, refreshAfterWriteMillis, executor));
+        }
+        return Optional.ofNullable(cache.getOrLoad(id, this::loadById));
     }
 
+    /**
+     * Async {@link #findById(Object)}: completes immediately on a hit (and on a
+     * refresh-due hit, which reloads in the background), and joins any
+     * in-flight load for the same id on a miss.
+     */
     public CompletableFuture<Optional<V>> findByIdAsync(K id) {
-        return CompletableFuture.supplyAsync(() -> findById(id), executor);
+        CompletableFuture<V> value = refreshAfterWriteMillis > 0
+                ? cache.getOrRefreshAsync(id, this::loadById, refreshAfterWriteMillis, executor)
+                : cache.getOrLoadAsync(id, this::loadById, executor);
+        return value.thenApply(Optional::ofNullable);
+    }
+
+    /**
+     * Bulk {@link #findById(Object)}: cached entities are returned directly and
+     * every miss is fetched with one {@code WHERE pk IN (...)} query (chunked
+     * to the dialect's bind-parameter limit) instead of one round trip each.
+     * Ids that do not exist are left out of the result.
+     *
+     * <pre>{@code
+     * Map<UUID, PlayerProfile> members = repo.findAllById(party.getMemberIds());
+     * }</pre>
+     *
+     * @return the found entities keyed by id, in the iteration order of {@code ids}
+     */
+    public Map<K, V> findAllById(Collection<K> ids) {
+        return cache.getAll(ids, this::loadAllById);
+    }
+
+    /** Async {@link #findAllById(Collection)}; completes immediately if every id is cached. */
+    public CompletableFuture<Map<K, V>> findAllByIdAsync(Collection<K> ids) {
+        return cache.getAllAsync(ids, this::loadAllById, executor);
     }
 
+    /**
+     * Loads every row and caches it. With secondary indexes declared or in
+     * fully resident mode, the repository then counts as fully cached: index
+     * lookups and queries are answered from memory alone until an entry is
+     * evicted, expires or is invalidated.
+     *
+     * <p>Cached and evicted-but-unflushed entities are newer than their rows,
+     * so they are kept and returned in place of them.
+     */
     public List<V> findAll() {
-        List<V> all = repo.findAll();
-        all.forEach(v -> cache.put(extractKey(v), v));
-        return all;
+        long epoch = residencyEpoch.get();
+        Map<K, V> all = new LinkedHashMap<>();
+        for (V row : repo.findAll()) {
+            K key = extractKey(row);
+            recordPresent(key);
+            all.put(key, cachedOrPending(key, row));
+        }
+        // Evicted inserts not flushed yet have no row; a complete table still needs them
+        evictedWrites.forEach((key, pending) -> {
+            if (!all.containsKey(key)) all.put(key, cachedOrPending(key, pending));
+        });
+        if (tracksResidency && residencyEpoch.get() == epoch) {
+            fullyCached = true;
+            residencyEvicted = false;
+        }
+        return new ArrayList<>(all.values());
     }
 
     public CompletableFuture<List<V>> findAllAsync() {
         return CompletableFuture.supplyAsync(this::findAll, executor);
     }
 
+    /**
+     * Cache-first existence check. With negative caching or a Bloom filter
+     * configured, ids known to be missing are answered without a query.
+     */
     public boolean exists(K id) {
-        if (cache.contains(id)) return true;
-        return repo.exists(id);
+        if (cache.contains(id) || evictedWrites.containsKey(id)) return true;
+        if (knownAbsent(id)) return false;
+        long epoch = writeEpoch.get();
+        boolean found = repo.exists(id);
+        if (found) recordPresent(id); else recordAbsent(id, epoch);
+        return found;
     }
 
     public CompletableFuture<Boolean> existsAsync(K id) {
@@ -144,13 +375,15 @@ public class CachedRepository<K, V> {
                 cache.put(key, entity);
             }
             case WRITE_BEHIND -> {
+                evictedWrites.remove(key); // superseded by the new dirty value
                 cache.update(key, entity); // marks dirty
             }
             case READ_THROUGH -> {
                 repo.insert(entity);
-                cache.invalidate(key); // force re-fetch next read
+                readThroughWritten(key, entity);
             }
         }
+        recordPresent(key);
     }
 
     public CompletableFuture<Void> insertAsync(V entity) {
@@ -164,13 +397,18 @@ public class CachedRepository<K, V> {
                 entities.forEach(e -> cache.put(extractKey(e), e));
             }
             case WRITE_BEHIND -> {
-                entities.forEach(e -> cache.update(extractKey(e), e));
+                entities.forEach(e -> {
+                    K key = extractKey(e);
+                    evictedWrites.remove(key);
+                    cache.update(key, e);
+                });
             }
             case READ_THROUGH -> {
                 repo.insertAll(entities);
-                entities.forEach(e -> cache.invalidate(extractKey(e)));
+                entities.forEach(e -> readThroughWritten(extractKey(e), e));
             }
         }
+        entities.forEach(e -> recordPresent(extractKey(e)));
     }
 
     public CompletableFuture<Void> insertAllAsync(List<V> entities) {
@@ -187,13 +425,15 @@ public class CachedRepository<K, V> {
                 cache.put(key, entity);
             }
             case WRITE_BEHIND -> {
+                evictedWrites.remove(key);
                 cache.update(key, entity);
             }
             case READ_THROUGH -> {
                 repo.update(entity);
-                cache.invalidate(key);
+                readThroughWritten(key, entity);
             }
         }
+        recordPresent(key);
     }
 
     public CompletableFuture<Void> updateAsync(V entity) {
@@ -210,13 +450,15 @@ public class CachedRepository<K, V> {
                 cache.put(key, entity);
             }
             case WRITE_BEHIND -> {
+                evictedWrites.remove(key);
                 cache.update(key, entity);
             }
             case READ_THROUGH -> {
                 repo.upsert(entity);
-                cache.invalidate(key);
+                readThroughWritten(key, entity);
             }
         }
+        recordPresent(key);
     }
 
     public CompletableFuture<Void> upsertAsync(V entity) {
@@ -226,44 +468,168 @@ public class CachedRepository<K, V> {
     // ── DELETE ───────────────────────────────────────────────────────────────
 
     public void delete(K id) {
-        cache.invalidate(id);
-        repo.delete(id);
+        if (writeStrategy == WriteStrategy.WRITE_BEHIND) {
+            // Hold the flush lock so an in-flight chunk cannot re-insert the row afterwards
+            synchronized (flushLock) {
+                evictedWrites.remove(id);
+                cache.invalidate(id);
+                repo.delete(id);
+            }
+        } else {
+            cache.invalidate(id);
+            repo.delete(id);
+        }
+        // The Bloom filter cannot forget the id, so remember the delete in the negative cache
+        writeEpoch.incrementAndGet();
+        if (absent != null) absent.put(id, Boolean.TRUE);
     }
 
     public CompletableFuture<Void> deleteAsync(K id) {
         return CompletableFuture.runAsync(() -> delete(id), executor);
     }
 
+    // ── SECONDARY INDEX LOOKUPS ──────────────────────────────────────────────
+
+    /**
+     * Entities whose {@code column} equals {@code value}, using the index
+     * declared with {@link Builder#index(String)}, {@link Builder#uniqueIndex(String)}
+     * or {@link Builder#sortedIndex(String)}.
+     *
+     * <p>Served from memory when the repository is fully cached (see
+     * {@link #findAll()}), or – for a unique index – when the match is cached.
+     * Otherwise the cached matches are combined with a {@code WHERE column = ?}
+     * query; cached and unflushed entities take precedence over their rows,
+     * and the fetched rows are cached and indexed for next time.
+     *
+     * <pre>{@code
+     * Optional<PlayerProfile> profile = repo.findOneBy("name", "Notch");
+     * List<PlayerProfile> members = repo.findBy("team_id", teamId);
+     * }</pre>
+     *
+     * @param value compared with {@link Object#equals}, so it must have the
+     *              field's Java type (e.g. {@code Integer}, not {@code Long})
+     */
+    public List<V> findBy(String column, Object value) {
+        SecondaryIndex<K> index = index(column);
+        if (value == null) return List.of(); // col = NULL never matches
+        long epoch = residencyEpoch.get();
+        boolean complete = fullyCached;
+        List<V> cached = readBack(index.get(value), e -> index.matches(e, value));
+        if ((complete && residencyEpoch.get() == epoch) || (index.unique() && !cached.isEmpty())) return cached;
+        return mergeWithDatabase(cached, repo.query().where(column, "=", toSqlValue(value)), e -> index.matches(e, value));
+    }
+
+    /** {@link #findBy(String, Object)} for a unique column. */
+    public Optional<V> findOneBy(String column, Object value) {
+        List<V> found = findBy(column, value);
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Entities whose {@code column} lies between {@code from} and {@code to}
+     * (both inclusive), ordered by that column. Needs an index declared with
+     * {@link Builder#sortedIndex(String)}; a {@code null} bound is open.
+     * Served from memory when fully cached, otherwise merged with a range
+     * query like {@link #findBy(String, Object)}.
+     *
+     * <pre>{@code
+     * List<PlayerProfile> veterans = repo.findRange("level", 50, null);
+     * }</pre>
+     */
+    public List<V> findRange(String column, Object from, Object to) {
+        return findRange(column, from, true, to, true);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<V> findRange(String column, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        SecondaryIndex<K> index = index(column);
+        if (!index.sorted()) throw new IllegalArgumentException("Index on " + column + " is not sorted – declare it with sortedIndex()");
+        long epoch = residencyEpoch.get();
+        boolean complete = fullyCached;
+        Predicate<V> inRange = e -> index.inRange(e, from, fromInclusive, to, toInclusive);
+        List<V> cached = readBack(index.range(from, fromInclusive, to, toInclusive), inRange);
+        if (complete && residencyEpoch.get() == epoch) return cached;
+
+        QueryBuilder<V> query = repo.query();
+        if (from != null) query.where(column, fromInclusive ? ">=" : ">", toSqlValue(from));
+        if (to != null) query.where(column, toInclusive ? "<=" : "<", toSqlValue(to));
+        List<V> merged = new ArrayList<>(mergeWithDatabase(cached, query, inRange));
+        merged.sort(Comparator.comparing(e -> (Comparable) index.valueOf(e)));
+        return merged;
+    }
+
+    public CompletableFuture<List<V>> findByAsync(String column, Object value) {
+        return CompletableFuture.supplyAsync(() -> findBy(column, value), executor);
+    }
+
+    public CompletableFuture<Optional<V>> findOneByAsync(String column, Object value) {
+        return CompletableFuture.supplyAsync(() -> findOneBy(column, value), executor);
+    }
+
+    public CompletableFuture<List<V>> findRangeAsync(String column, Object from, Object to) {
+        return CompletableFuture.supplyAsync(() -> findRange(column, from, to), executor);
+    }
+
+    /**
+     * Whether {@link #findAll()} cached the whole table and no entry has left
+     * the cache since. Only tracked when secondary indexes are declared or the
+     * repository is {@link Builder#fullyResident() fully resident}.
+     */
+    public boolean isFullyCached() {
+        return fullyCached;
+    }
+
     // ── QUERY BUILDER (bypasses cache – use for complex queries) ──────────────
 
     /**
      * Returns the underlying {@link QueryBuilder} for complex WHERE/ORDER queries.
      * Results from this builder are NOT automatically cached. Use
      * {@link #cacheAll(List)} to populate the cache after a bulk query.
+     *
+     * <p>In {@link Builder#fullyResident() fully resident} mode the query runs
+     * against the cached table instead (see {@link QueryBuilder#resident}), and
+     * {@code delete()} also drops the deleted rows from the cache.
      */
     public QueryBuilder<V> query() {
-        return repo.query();
+        QueryBuilder<V> query = repo.query();
+        return resident ? query.resident(residentRows) : query;
     }
 
     /** Populate cache from an externally fetched list (e.g. after a query()). */
     public void cacheAll(List<V> entities) {
-        entities.forEach(e -> cache.put(extractKey(e), e));
+        entities.forEach(e -> {
+            K key = extractKey(e);
+            recordPresent(key);
+            cache.put(key, e);
+        });
     }
 
     // ── CACHE DIRECT ACCESS ──────────────────────────────────────────────────
 
     public void invalidate(K id) {
         cache.invalidate(id);
+        markPartiallyCached();
     }
 
     public void invalidateAll() {
         cache.invalidateAll();
+        markPartiallyCached();
     }
 
     public CacheStats getCacheStats() {
         return cache.getStats();
     }
 
+    /** Lookups answered from the negative cache without a query. */
+    public long getNegativeHits() {
+        return negativeHits.sum();
+    }
+
+    /** Lookups the Bloom filter proved missing without a query. */
+    public long getBloomRejections() {
+        return bloomRejections.sum();
+    }
+
     public NotCache<K, V> getCache() {
         return cache;
     }
@@ -274,27 +640,292 @@ public class CachedRepository<K, V> {
      * Flushes all dirty cache entries to the database using batch upsert.
      * Safe to call manually at any time (e.g. on plugin disable).
      * Called automatically by the background scheduler when using WRITE_BEHIND.
+     *
+     * <p>The dirty keys are snapshotted once and written in chunks of
+     * {@link Builder#flushChunkSize(int)}, each in its own transaction, so the
+     * flush lock is only held for one chunk at a time. Every entry is cleaned
+     * only if its write version is still the one that was written; an entity
+     * updated while its chunk was in flight stays dirty for the next flush.
+     *
+     * <p>A failing chunk is retried with exponential backoff. When the
+     * retries are used up, its rows are written one by one so a single bad
+     * row cannot block the rest; rows that still fail stay dirty and are
+     * counted in {@link #getFlushStats()} instead of throwing.
      */
     public void flush() {
-        synchronized (flushLock) {
-            Map<K, V> dirty = cache.getDirtyEntries();
-            if (dirty.isEmpty()) return;
+        List<K> evicted = new ArrayList<>(evictedWrites.keySet());
+        List<K> keys = cache.dirtyKeys();
+        if (keys.isEmpty() && evicted.isEmpty()) return;
+
+        LOGGER.info("[CachedRepository] Flushing " + (keys.size() + evicted.size()) + " dirty entries to DB...");
+        long start = System.nanoTime();
+        ChunkResult evictedResult = writeInChunks(evicted, this::writeEvictedChunk);
+        ChunkResult result = writeInChunks(keys, this::flushChunk);
+        int written = evictedResult.written() + result.written();
+        int failed = evictedResult.failed() + result.failed();
+        long nanos = System.nanoTime() - start;
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        flushLatency.record(nanos);
+        flushes.incrementAndGet();
+        rowsWritten.addAndGet(written);
+        rowsFailed.addAndGet(failed);
+        lastFlushMillis.set(millis);
+        maxFlushMillis.accumulateAndGet(millis, Math::max);
+
+        if (failed > 0) {
+            LOGGER.severe("[CachedRepository] Flush wrote " + written + " rows in " + millis + "ms, "
+                    + failed + " rows failed and stay dirty.");
+        } else {
+            LOGGER.info("[CachedRepository] Flush complete: " + written + " rows in " + millis + "ms.");
+        }
+    }
+
+    public CompletableFuture<Void> flushAsync() {
+        return CompletableFuture.runAsync(this::flush, executor);
+    }
+
+    public FlushStats getFlushStats() {
+        return new FlushStats(
+                flushes.get(), rowsWritten.get(), rowsFailed.get(),
+                chunkRetries.get(), lastFlushMillis.get(), maxFlushMillis.get(),
+                cache.dirtyCount() + evictedWrites.size(), flushLatency.snapshot()
+        );
+    }
 
-            List<V> entities = new ArrayList<>(dirty.values());
-            LOGGER.info("[CachedRepository] Flushing " + entities.size() + " dirty entries to DB...");
+    /** Zeroes the cache, negative-lookup and flush counters, e.g. from the JMX {@code resetStats} operation. */
+    public void resetStats() {
+        cache.resetStats();
+        negativeHits.reset();
+        bloomRejections.reset();
+        flushes.set(0);
+        rowsWritten.set(0);
+        rowsFailed.set(0);
+        chunkRetries.set(0);
+        lastFlushMillis.set(0);
+        maxFlushMillis.set(0);
+        flushLatency.reset();
+    }
+
+    /** Dirty entries evicted from the cache that are queued but not yet written. */
+    public int pendingEvictedWrites() {
+        return evictedWrites.size();
+    }
+
+    private record ChunkResult(int written, int failed) {}
+
+    private ChunkResult writeInChunks(List<K> keys, Function<List<K>, ChunkResult> writer) {
+        int written = 0;
+        int failed = 0;
+        for (int from = 0; from < keys.size(); from += flushChunkSize) {
+            ChunkResult result = writer.apply(keys.subList(from, Math.min(from + flushChunkSize, keys.size())));
+            written += result.written();
+            failed += result.failed();
+        }
+        return new ChunkResult(written, failed);
+    }
+
+    private ChunkResult flushChunk(List<K> keys) {
+        // Re-read under the lock so the newest value and version are written
+        return writeChunk(() -> cache.getDirtyEntries(keys), e -> cache.markClean(e.key(), e.version()));
+    }
+
+    private ChunkResult writeEvictedChunk(List<K> keys) {
+        return writeChunk(() -> {
+            List<DirtyEntry<K, V>> entries = new ArrayList<>(keys.size());
+            for (K key : keys) {
+                V value = evictedWrites.get(key);
+                if (value != null) entries.add(new DirtyEntry<>(key, value, 0L));
+            }
+            return entries;
+        }, e -> evictedWrites.remove(e.key(), e.value()));
+    }
+
+    private ChunkResult writeChunk(Supplier<List<DirtyEntry<K, V>>> snapshot, Consumer<DirtyEntry<K, V>> onWritten) {
+        for (int attempt = 0; ; attempt++) {
+            synchronized (flushLock) {
+                List<DirtyEntry<K, V>> entries = snapshot.get();
+                if (entries.isEmpty()) return new ChunkResult(0, 0);
+                try {
+                    repo.upsertAll(entries.stream().map(DirtyEntry::value).toList());
+                    entries.forEach(onWritten);
+                    return new ChunkResult(entries.size(), 0);
+                } catch (RuntimeException e) {
+                    if (attempt >= flushRetries) {
+                        LOGGER.warning("[CachedRepository] Chunk of " + entries.size()
+                                + " rows failed after " + (attempt + 1) + " attempts, writing rows individually: "
+                                + e.getMessage());
+                        return flushRows(entries, onWritten);
+                    }
+                    LOGGER.warning("[CachedRepository] Chunk write failed (attempt " + (attempt + 1) + "): "
+                            + e.getMessage());
+                }
+            }
+            chunkRetries.incrementAndGet();
             try {
-                repo.upsertAll(entities);
-                cache.markAllClean();
-                LOGGER.info("[CachedRepository] Flush complete.");
-            } catch (Exception e) {
-                LOGGER.severe("[CachedRepository] Flush failed: " + e.getMessage());
-                throw new RuntimeException(e);
+                Thread.sleep(flushRetryBackoffMillis << Math.min(attempt, 10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new ChunkResult(0, 0); // entries stay dirty for the next flush
             }
         }
     }
 
-    public CompletableFuture<Void> flushAsync() {
-        return CompletableFuture.runAsync(this::flush, executor);
+    // Called under flushLock after a chunk gave up, to isolate the bad rows
+    private ChunkResult flushRows(List<DirtyEntry<K, V>> entries, Consumer<DirtyEntry<K, V>> onWritten) {
+        int written = 0;
+        int failed = 0;
+        for (DirtyEntry<K, V> entry : entries) {
+            try {
+                repo.upsert(entry.value());
+                onWritten.accept(entry);
+                written++;
+            } catch (RuntimeException e) {
+                failed++;
+                LOGGER.severe("[CachedRepository] Failed to write " + entry.key() + ": " + e.getMessage());
+            }
+        }
+        return new ChunkResult(written, failed);
+    }
+
+    // ── PLAYER SESSIONS ──────────────────────────────────────────────────────
+
+    /**
+     * Starts a session for {@code id}: pins its cache entry so it is neither
+     * evicted nor expired while the player is online, and loads it. Meant for
+     * {@code AsyncPlayerPreLoginEvent}, which may block, so the entity is
+     * cached before the player joins (see
+     * {@link dev.notmarra.notlib.extensions.PlayerSessions}). Reopening a
+     * session that is still waiting to be released cancels the release.
+     *
+     * @return the entity, or empty for a first-time player – an entity
+     *         inserted later is pinned as well
+     */
+    public Optional<V> openSession(K id) {
+        long start = System.nanoTime();
+        pinSession(id);
+        Optional<V> entity = findById(id);
+        recordPreload(System.nanoTime() - start);
+        return entity;
+    }
+
+    public CompletableFuture<Optional<V>> openSessionAsync(K id) {
+        long start = System.nanoTime();
+        pinSession(id);
+        return findByIdAsync(id).whenComplete((entity, error) -> recordPreload(System.nanoTime() - start));
+    }
+
+    /**
+     * Ends the session for {@code id}. Sessions closed within
+     * {@link Builder#sessionReleaseDelayMillis(long)} of each other are
+     * handled together: with WRITE_BEHIND their dirty entities are written in
+     * chunks of {@link Builder#flushChunkSize(int)}, then the entries are
+     * unpinned and age out under the normal eviction policy.
+     *
+     * @return completes once the entity is written and released
+     */
+    public CompletableFuture<Void> closeSession(K id) {
+        CompletableFuture<Void> released = closingSessions.computeIfAbsent(id, k -> new CompletableFuture<>());
+        if (sessionReleaseScheduled.compareAndSet(false, true)) {
+            try {
+                sessionReleaseTask = maintenance.schedule("CachedRepo-SessionRelease", this::releaseSessions, sessionReleaseDelayMillis);
+            } catch (RejectedExecutionException e) {
+                sessionReleaseScheduled.set(false);
+                releaseSessions(); // scheduler gone – release inline
+            }
+        }
+        return released.copy();
+    }
+
+    public boolean hasSession(K id) {
+        return sessions.contains(id);
+    }
+
+    public SessionStats getSessionStats() {
+        long preloads = sessionPreloads.get();
+        return new SessionStats(
+                sessions.size(), preloads, sessionsReleased.get(),
+                lastPreloadNanos.get() / 1e6,
+                preloads == 0 ? 0.0 : preloadNanosTotal.get() / 1e6 / preloads,
+                maxPreloadNanos.get() / 1e6
+        );
+    }
+
+    private void pinSession(K id) {
+        CompletableFuture<?>[] cancelled = {null};
+        // Serialised with releaseSessions per key, so a quick rejoin is never unpinned
+        closingSessions.compute(id, (k, pending) -> {
+            cancelled[0] = pending;
+            sessions.add(k);
+            cache.pin(k);
+            return null;
+        });
+        if (cancelled[0] != null) cancelled[0].complete(null);
+    }
+
+    private void recordPreload(long nanos) {
+        sessionPreloads.incrementAndGet();
+        preloadNanosTotal.addAndGet(nanos);
+        lastPreloadNanos.set(nanos);
+        maxPreloadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void releaseSessions() {
+        sessionReleaseScheduled.set(false);
+        List<K> keys = new ArrayList<>(closingSessions.keySet());
+        for (int from = 0; from < keys.size(); from += flushChunkSize) {
+            List<K> chunk = keys.subList(from, Math.min(from + flushChunkSize, keys.size()));
+            if (writeStrategy == WriteStrategy.WRITE_BEHIND) {
+                ChunkResult result = flushChunk(chunk);
+                rowsWritten.addAndGet(result.written());
+                rowsFailed.addAndGet(result.failed()); // failed rows stay dirty for the periodic flush
+            }
+            for (K key : chunk) {
+                CompletableFuture<?>[] released = {null};
+                closingSessions.computeIfPresent(key, (k, pending) -> {
+                    released[0] = pending;
+                    sessions.remove(k);
+                    cache.unpin(k);
+                    return null;
+                });
+                if (released[0] != null) {
+                    sessionsReleased.incrementAndGet();
+                    released[0].complete(null);
+                }
+            }
+        }
+    }
+
+    // ── WRITE-ON-EVICT ───────────────────────────────────────────────────────
+
+    /**
+     * Queues dirty entries that the cache dropped for size or TTL, so
+     * WRITE_BEHIND no longer loses them under memory pressure. Explicit
+     * invalidations are not written back. The queue is drained in chunks by
+     * the maintenance scheduler shortly after the first eviction, batching
+     * everything evicted in the meantime.
+     */
+    private void onRemoval(RemovalNotification<K, V> removal) {
+        if (!removal.dirty() || removal.cause() == RemovalCause.EXPLICIT) return;
+        evictedWrites.put(removal.key(), removal.value());
+        if (evictedWriteScheduled.compareAndSet(false, true)) {
+            try {
+                evictedWriteTask = maintenance.schedule("CachedRepo-EvictedWrites", this::writeEvicted, evictedWriteDelayMillis);
+            } catch (RejectedExecutionException e) {
+                evictedWriteScheduled.set(false); // shutting down – close() flushes the queue
+            }
+        }
+    }
+
+    private void writeEvicted() {
+        evictedWriteScheduled.set(false);
+        ChunkResult result = writeInChunks(new ArrayList<>(evictedWrites.keySet()), this::writeEvictedChunk);
+        rowsWritten.addAndGet(result.written());
+        rowsFailed.addAndGet(result.failed());
+        if (result.failed() > 0) {
+            LOGGER.severe("[CachedRepository] " + result.failed() + " evicted dirty rows failed to write;"
+                    + " they stay queued for the next flush.");
+        }
     }
 
     // ── CALLBACKS ────────────────────────────────────────────────────────────
@@ -310,25 +941,248 @@ public class CachedRepository<K, V> {
     // ── LIFECYCLE ────────────────────────────────────────────────────────────
 
     /**
-     * Flush pending writes, stop the background scheduler, and shut down the cache.
+     * Stop the background flush, flush pending writes, and shut down the cache.
+     * The maintenance scheduler is left running for its other users.
      */
     public void close() {
+        if (flushTask != null) flushTask.cancel();
+        MaintenanceScheduler.Task evicted = evictedWriteTask;
+        if (evicted != null) evicted.cancel();
+        MaintenanceScheduler.Task sessionRelease = sessionReleaseTask;
+        if (sessionRelease != null) sessionRelease.cancel();
+        releaseSessions();
         if (writeStrategy == WriteStrategy.WRITE_BEHIND) {
             flush();
         }
-        flushScheduler.shutdownNow();
+        if (snapshotFile != null && !resident) writeSnapshot();
         cache.shutdown();
+        if (absent != null) absent.shutdown();
+        if (metricsBean != null) metricsBean.unregister();
+    }
+
+    // ── WARM RESTART ─────────────────────────────────────────────────────────
+
+    /**
+     * Completes with the number of entities restored from the snapshot once
+     * the background warm-up started by {@link #createTable()} is done; 0
+     * without a snapshot. Lookups work normally while it runs.
+     */
+    public CompletableFuture<Integer> getWarmUp() {
+        return warmUp;
+    }
+
+    private void writeSnapshot() {
+        long start = System.nanoTime();
+        List<Map.Entry<K, V>> hottest = cache.hottest(snapshotMaxEntries);
+        if (hottest.isEmpty()) return;
+        try {
+            CacheSnapshot.write(snapshotFile, table, hottest, snapshotValues);
+            LOGGER.info("[CachedRepository] Saved " + hottest.size() + " hot keys of " + table.getTableName()
+                    + " to " + snapshotFile + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warning("[CachedRepository] Could not write cache snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads and deletes the snapshot, then caches its entities: those saved
+     * with the snapshot directly (oldest first, so the most recent end up
+     * most recently used), the rest with chunked {@link #findAllById} queries,
+     * newest first. Entities already cached by then are left alone.
+     */
+    private int restoreSnapshot() {
+        long start = System.nanoTime();
+        CacheSnapshot.Contents<K, V> snapshot;
+        try {
+            snapshot = CacheSnapshot.read(snapshotFile, table);
+        } catch (IOException e) {
+            LOGGER.warning("[CachedRepository] Discarding cache snapshot " + snapshotFile + ": " + e.getMessage());
+            snapshot = null;
+        }
+        try {
+            Files.deleteIfExists(snapshotFile); // a crash later must not restore this state again
+        } catch (IOException e) {
+            LOGGER.warning("[CachedRepository] Could not delete cache snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+        if (snapshot == null || snapshot.keys().isEmpty()) return 0;
+
+        Map<K, V> saved = snapshot.values();
+        List<K> withValue = new ArrayList<>(saved.size());
+        List<K> keyOnly = new ArrayList<>(snapshot.keys().size() - saved.size());
+        for (K key : snapshot.keys()) (saved.containsKey(key) ? withValue : keyOnly).add(key);
+        Collections.reverse(withValue);
+
+        int restored = 0;
+        if (!withValue.isEmpty()) {
+            restored += cache.getAll(withValue, ids -> {
+                Map<K, V> found = new LinkedHashMap<>();
+                for (K id : withValue) {
+                    if (!ids.contains(id)) continue;
+                    recordPresent(id);
+                    found.put(id, saved.get(id));
+                }
+                return found;
+            }).size();
+        }
+        for (int from = 0; from < keyOnly.size(); from += flushChunkSize) {
+            restored += findAllById(keyOnly.subList(from, Math.min(from + flushChunkSize, keyOnly.size()))).size();
+        }
+        LOGGER.info("[CachedRepository] Warmed " + restored + " of " + snapshot.keys().size() + " " + table.getTableName()
+                + " entities from snapshot in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return restored;
     }
 
     // ── INTERNAL HELPERS ─────────────────────────────────────────────────────
 
+    private V loadById(K id) {
+        V pending = evictedWrites.get(id); // evicted but not written yet – newer than the DB
+        if (pending != null) return pending;
+        if (knownAbsent(id)) return null;
+        long epoch = writeEpoch.get();
+        V loaded = repo.findById(id).orElse(null);
+        if (loaded != null) recordPresent(id); else recordAbsent(id, epoch);
+        return loaded;
+    }
+
+    private Map<K, V> loadAllById(Set<K> ids) {
+        Map<K, V> loaded = new HashMap<>();
+        List<K> query = new ArrayList<>(ids.size());
+        for (K id : ids) {
+            V pending = evictedWrites.get(id); // evicted but not written yet – newer than the DB
+            if (pending != null) loaded.put(id, pending);
+            else if (!knownAbsent(id)) query.add(id);
+        }
+        if (!query.isEmpty()) {
+            long epoch = writeEpoch.get();
+            repo.findAllById(query).forEach(v -> loaded.put(extractKey(v), v));
+            for (K id : query) {
+                if (loaded.containsKey(id)) recordPresent(id); else recordAbsent(id, epoch);
+            }
+        }
+        return loaded;
+    }
+
+    private SecondaryIndex<K> index(String column) {
+        SecondaryIndex<K> index = indexes.get(column);
+        if (index == null) throw new IllegalArgumentException("No index on " + column + " – declare it on the builder");
+        return index;
+    }
+
+    /** Reads candidate keys back from the cache, keeping those that still match. */
+    private List<V> readBack(List<K> keys, Predicate<V> matches) {
+        List<V> result = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            V entity = cache.getIfPresent(key);
+            if (entity != null && matches.test(entity)) result.add(entity);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the rows of {@code query} to the cached matches. A cached or
+     * evicted-but-unflushed entity is newer than its row, so it replaces the
+     * row and is only kept if it still matches; other rows are cached.
+     */
+    private List<V> mergeWithDatabase(List<V> cached, QueryBuilder<V> query, Predicate<V> matches) {
+        Map<K, V> result = new LinkedHashMap<>();
+        cached.forEach(e -> result.put(extractKey(e), e));
+        for (V row : query.findAll()) {
+            K key = extractKey(row);
+            if (result.containsKey(key)) continue;
+            recordPresent(key);
+            V current = cachedOrPending(key, row);
+            if (matches.test(current)) result.put(key, current);
+        }
+        evictedWrites.forEach((key, pending) -> {
+            if (matches.test(pending)) result.putIfAbsent(key, pending);
+        });
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Caches {@code row} unless the key is already cached (possibly dirty) or
+     * waits in {@link #evictedWrites}; returns whichever is newest.
+     */
+    private V cachedOrPending(K key, V row) {
+        V current = cache.getOrLoad(key, k -> {
+            V pending = evictedWrites.get(k);
+            return pending != null ? pending : row;
+        });
+        return current != null ? current : row;
+    }
+
+    private static Object toSqlValue(Object value) {
+        return value instanceof UUID ? value.toString() : value;
+    }
+
+    private void syncIndexes(K key) {
+        for (SecondaryIndex<K> index : indexes.values()) index.sync(key, cache);
+    }
+
+    private void onTrackedRemoval(RemovalNotification<K, V> removal) {
+        if (removal.cause() != RemovalCause.EXPLICIT) {
+            if (resident && !residencyEvicted) {
+                residencyEvicted = true;
+                LOGGER.warning("[CachedRepository] Cache " + removal.cause() + " removed a row of a fully resident table; "
+                        + "queries use SQL until findAll() reloads it. Give the cache room for the whole table.");
+            }
+            markPartiallyCached();
+        }
+        syncIndexes(removal.key());
+    }
+
+    /** Called whenever a row that still exists stops being cached. */
+    private void markPartiallyCached() {
+        if (!tracksResidency) return;
+        residencyEpoch.incrementAndGet();
+        fullyCached = false;
+    }
+
+    /** READ_THROUGH drops written entities so the next read re-fetches them; a resident table keeps them. */
+    private void readThroughWritten(K key, V entity) {
+        if (resident) {
+            cache.put(key, entity);
+            return;
+        }
+        cache.invalidate(key);
+        markPartiallyCached();
+    }
+
+    private boolean knownAbsent(K id) {
+        if (resident && fullyCached) return true; // every row is cached, so a miss is a missing row
+        if (absent != null && absent.getIfPresent(id) != null) {
+            negativeHits.increment();
+            return true;
+        }
+        BloomFilter filter = bloom;
+        if (filter != null && !filter.mightContain(id)) {
+            bloomRejections.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /** Called for every id that is written or seen in the database. */
+    private void recordPresent(K id) {
+        writeEpoch.incrementAndGet();
+        if (absent != null) absent.invalidate(id);
+        // Read seeding before bloom: a seed that finishes in between has already published its filter
+        BloomFilter next = seeding;
+        if (next != null) next.put(id);
+        BloomFilter filter = bloom;
+        if (filter != null) filter.put(id);
+    }
+
+    private void recordAbsent(K id, long epochBeforeLoad) {
+        // Skip if anything was written meanwhile – it may have been this id
+        if (absent == null || writeEpoch.get() != epochBeforeLoad) return;
+        absent.put(id, Boolean.TRUE);
+        if (writeEpoch.get() != epochBeforeLoad) absent.invalidate(id); // lost a race with a write
+    }
+
     @SuppressWarnings("unchecked")
     private K extractKey(V entity) {
-        try {
-            return (K) pkField.get(entity);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("Cannot read primary key from " + entity.getClass().getName(), e);
-        }
+        return (K) table.primaryKeyOf(entity);
     }
 
     // ── BUILDER ──────────────────────────────────────────────────────────────
@@ -337,22 +1191,83 @@ public class CachedRepository<K, V> {
         return new Builder<>(database, entityClass);
     }
 
+    /** The cached table as seen by {@link QueryBuilder} in fully resident mode. */
+    private final class ResidentTable implements ResidentRows<V> {
+        @Override
+        public Collection<V> snapshot() {
+            if (!fullyCached && !residencyEvicted) {
+                synchronized (residentLoadLock) {
+                    if (!fullyCached) findAll();
+                }
+            }
+            long epoch = residencyEpoch.get();
+            if (!fullyCached) return null;
+            List<V> rows = cache.values();
+            return residencyEpoch.get() == epoch ? rows : null;
+        }
+
+        @Override
+        public void delete(Predicate<V> matches, Runnable sqlDelete) {
+            if (writeStrategy != WriteStrategy.WRITE_BEHIND) {
+                deleteMatching(matches, sqlDelete);
+                return;
+            }
+            synchronized (flushLock) {
+                // Unflushed rows the predicate cannot be checked against must reach the table first
+                if (matches == null) flush();
+                deleteMatching(matches, sqlDelete);
+            }
+        }
+
+        private void deleteMatching(Predicate<V> matches, Runnable sqlDelete) {
+            sqlDelete.run();
+            if (matches == null) {
+                invalidateAll(); // reloaded by the next query
+                return;
+            }
+            for (V entity : cache.values()) {
+                if (!matches.test(entity)) continue;
+                K key = extractKey(entity);
+                cache.invalidate(key);
+                writeEpoch.incrementAndGet();
+                if (absent != null) absent.put(key, Boolean.TRUE);
+            }
+            evictedWrites.values().removeIf(matches);
+        }
+    }
+
+    private record IndexSpec(String column, boolean unique, boolean sorted) {}
+
     public static class Builder<K, V> {
         private final Database database;
         private final Class<V> entityClass;
         private WriteStrategy writeStrategy = WriteStrategy.WRITE_THROUGH;
         private long flushIntervalMillis = 30_000L;
+        private long flushJitterMillis = -1L; // default: 10% of the interval
+        private MaintenanceScheduler maintenance = MaintenanceScheduler.shared();
+        private long refreshAfterWriteMillis = 0L;
+        private int flushChunkSize = 500;
+        private int flushRetries = 3;
+        private long flushRetryBackoffMillis = 200L;
+        private long evictedWriteDelayMillis = 100L;
+        private long sessionReleaseDelayMillis = 250L;
+        private long negativeTtlMillis = 0L;
+        private int negativeMaxSize = 10_000;
+        private long bloomExpectedKeys = 0L;
+        private double bloomFalsePositiveRate = 0.01;
+        private final List<IndexSpec> indexes = new ArrayList<>();
+        private boolean fullyResident;
+        private Path snapshotFile;
+        private boolean snapshotValues;
+        private int snapshotMaxEntries = Integer.MAX_VALUE;
+        private boolean compressValues;
+        private String jmxName;
         private NotCache<K, V> cache;
         private Executor executor = ForkJoinPool.commonPool();
 
         private Builder(Database database, Class<V> entityClass) {
             this.database = database;
             this.entityClass = entityClass;
-            this.cache = NotCache.<K, V>builder()
-                    .maxSize(500)
-                    .ttlMinutes(10)
-                    .evictionPolicy(CacheEvictionPolicy.LRU)
-                    .build();
         }
 
         public Builder<K, V> writeStrategy(WriteStrategy strategy) {
@@ -370,6 +1285,234 @@ public class CachedRepository<K, V> {
             return this;
         }
 
+        /**
+         * Random variation applied to each flush delay so repositories with the
+         * same interval do not flush in the same second. Defaults to 10% of
+         * the interval.
+         */
+        public Builder<K, V> flushJitterMillis(long ms) {
+            this.flushJitterMillis = ms;
+            return this;
+        }
+
+        /**
+         * Scheduler for periodic flushes and write-on-evict batches. Defaults to
+         * {@link MaintenanceScheduler#shared()}. The default cache created by
+         * this builder uses it too; pass the same one to
+         * {@link NotCache.Builder#maintenance(MaintenanceScheduler)} for a custom cache.
+         */
+        public Builder<K, V> maintenance(MaintenanceScheduler maintenance) {
+            this.maintenance = Objects.requireNonNull(maintenance, "maintenance");
+            return this;
+        }
+
+        /**
+         * Maximum rows written per flush transaction (default 500). Smaller
+         * chunks hold the flush lock for less time and limit how much work a
+         * failed transaction throws away.
+         */
+        public Builder<K, V> flushChunkSize(int rows) {
+            this.flushChunkSize = Math.max(1, rows);
+            return this;
+        }
+
+        /**
+         * How often a failed chunk is retried before its rows are written
+         * individually (default 3). The delay starts at
+         * {@link #flushRetryBackoffMillis(long)} and doubles per attempt.
+         */
+        public Builder<K, V> flushRetries(int retries) {
+            this.flushRetries = Math.max(0, retries);
+            return this;
+        }
+
+        public Builder<K, V> flushRetryBackoffMillis(long ms) {
+            this.flushRetryBackoffMillis = Math.max(0, ms);
+            return this;
+        }
+
+        /**
+         * How long to collect dirty entries evicted by the cache before writing
+         * them in one batch (default 100 ms). Only used with WRITE_BEHIND.
+         */
+        public Builder<K, V> evictedWriteDelayMillis(long ms) {
+            this.evictedWriteDelayMillis = Math.max(0, ms);
+            return this;
+        }
+
+        /**
+         * How long to collect closed sessions before flushing and unpinning
+         * them in one batch (default 250 ms), so a wave of quits on shutdown
+         * or after a restart warning becomes a few chunked writes.
+         */
+        public Builder<K, V> sessionReleaseDelayMillis(long ms) {
+            this.sessionReleaseDelayMillis = Math.max(0, ms);
+            return this;
+        }
+
+        /**
+         * Enables refresh-ahead: once a cached entity is older than this, the
+         * next read still returns it immediately but also starts a background
+         * reload on the repository executor, so hot entries never make a
+         * caller wait on the database. Dirty (unflushed) entries are never
+         * refreshed. Should be shorter than the cache TTL; 0 disables (default).
+         */
+        public Builder<K, V> refreshAfterWriteSeconds(long seconds) {
+            this.refreshAfterWriteMillis = seconds * 1000L;
+            return this;
+        }
+
+        public Builder<K, V> refreshAfterWriteMillis(long ms) {
+            this.refreshAfterWriteMillis = ms;
+            return this;
+        }
+
+        /**
+         * Remembers ids that {@link #findById}/{@link #exists} found missing for
+         * this long, so repeated lookups of unknown keys skip the database.
+         * Inserts and upserts through this repository clear the entry at once;
+         * rows inserted by another process stay invisible until it expires.
+         * 0 disables (default).
+         */
+        public Builder<K, V> negativeCacheTtlSeconds(long seconds) {
+            this.negativeTtlMillis = seconds * 1000L;
+            return this;
+        }
+
+        public Builder<K, V> negativeCacheTtlMillis(long ms) {
+            this.negativeTtlMillis = ms;
+            return this;
+        }
+
+        /** Maximum number of missing ids remembered (default 10 000). */
+        public Builder<K, V> negativeCacheMaxSize(int size) {
+            this.negativeMaxSize = Math.max(1, size);
+            return this;
+        }
+
+        /**
+         * Keeps a Bloom filter of every primary key in the table, seeded by
+         * {@link #createTable()} (or {@link #seedBloomFilter()}) and updated on
+         * each write. A lookup the filter rules out returns "absent" without a
+         * query.
+         *
+         * <p>Only safe when this process is the sole writer of the table – a
+         * row inserted elsewhere is reported missing until the filter is
+         * reseeded. Deleted ids stay in the filter until the next reseed.
+         *
+         * @param expectedKeys      table size the filter is dimensioned for; 0 disables (default)
+         * @param falsePositiveRate share of unknown ids that still reach the database, e.g. {@code 0.01}
+         */
+        public Builder<K, V> bloomFilter(long expectedKeys, double falsePositiveRate) {
+            if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+                throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+            }
+            this.bloomExpectedKeys = Math.max(0, expectedKeys);
+            this.bloomFalsePositiveRate = falsePositiveRate;
+            return this;
+        }
+
+        /**
+         * Declares a hash index on a non-key {@code @Column} for
+         * {@link CachedRepository#findBy(String, Object)}. Equality lookups
+         * then cost O(1) against the cached entities.
+         */
+        public Builder<K, V> index(String column) {
+            indexes.add(new IndexSpec(column, false, false));
+            return this;
+        }
+
+        /**
+         * Like {@link #index(String)} for a column with at most one row per
+         * value (e.g. a player name): a cached match is returned without
+         * asking the database whether there are more.
+         */
+        public Builder<K, V> uniqueIndex(String column) {
+            indexes.add(new IndexSpec(column, true, false));
+            return this;
+        }
+
+        /**
+         * Declares a sorted index on a {@code Comparable} column, supporting
+         * both {@link CachedRepository#findBy(String, Object)} and
+         * {@link CachedRepository#findRange(String, Object, Object)} in O(log n).
+         */
+        public Builder<K, V> sortedIndex(String column) {
+            indexes.add(new IndexSpec(column, false, true));
+            return this;
+        }
+
+        /**
+         * Keeps the whole table in memory, for small and hot reference tables
+         * (shop items, kits, ranks). {@link CachedRepository#createTable()}
+         * loads every row, {@link CachedRepository#query()} then evaluates
+         * where/orderBy/limit/offset/count against the cached rows, and
+         * {@code findById} of an unknown id needs no query. Writes through
+         * the repository keep the copy current.
+         *
+         * <p>Unless {@link #cache(NotCache)} is given, the cache is unbounded
+         * and never expires. A cache that evicts or expires a row makes
+         * queries fall back to SQL until {@link CachedRepository#findAll()}
+         * reloads the table.
+         */
+        public Builder<K, V> fullyResident() {
+            this.fullyResident = true;
+            return this;
+        }
+
+        /**
+         * Keeps the cache warm across restarts: {@link CachedRepository#close()}
+         * writes the keys of the most recently used entries to {@code file},
+         * and {@link CachedRepository#createTable()} on the next start loads
+         * them back in bulk, off the calling thread and newest first. The
+         * file is consumed on load and discarded if the entity's
+         * {@link EntityTable#schemaHash() schema} changed in between.
+         *
+         * @param includeValues also store the entities themselves, so no query
+         *                      is needed on load. Only safe if nothing else
+         *                      writes the table while the server is down;
+         *                      dirty entries are always stored as keys only
+         */
+        public Builder<K, V> snapshot(Path file, boolean includeValues) {
+            this.snapshotFile = file;
+            this.snapshotValues = includeValues;
+            return this;
+        }
+
+        /** Keys-only {@link #snapshot(Path, boolean)}. */
+        public Builder<K, V> snapshot(Path file) {
+            return snapshot(file, false);
+        }
+
+        /** Caps how many entries a snapshot keeps (default: everything cached). */
+        public Builder<K, V> snapshotMaxEntries(int max) {
+            this.snapshotMaxEntries = Math.max(1, max);
+            return this;
+        }
+
+        /**
+         * Keeps the entities of the default cache deflated, column by column
+         * ({@link EntityCodec}), for tables with large {@code String} blobs.
+         * Reads decode a fresh copy unless the entity is among the most
+         * recently used, so always save changes with {@code update}/{@code save}.
+         * For a cache passed to {@link #cache(NotCache)}, use
+         * {@link NotCache.Builder#valueCodec(ValueCodec)} on it instead.
+         */
+        public Builder<K, V> compressValues() {
+            this.compressValues = true;
+            return this;
+        }
+
+        /**
+         * Exports the cache and flush metrics as a {@link NotCacheMXBean}
+         * named {@code dev.notmarra.notlib:type=Cache,name=<name>} until
+         * {@link CachedRepository#close()}.
+         */
+        public Builder<K, V> jmxName(String name) {
+            this.jmxName = name;
+            return this;
+        }
+
         public Builder<K, V> cache(NotCache<K, V> cache) {
             this.cache = cache;
             return this;
@@ -388,6 +1531,26 @@ public class CachedRepository<K, V> {
         }
 
         public CachedRepository<K, V> build() {
+            if (compressValues && cache != null) {
+                throw new IllegalStateException("compressValues() applies to the default cache – set a valueCodec on the given cache instead");
+            }
+            if (cache == null) {
+                NotCache.Builder<K, V> defaults = fullyResident
+                        ? NotCache.<K, V>builder()
+                                .maxSize(Integer.MAX_VALUE)
+                                .ttlMillis(0)
+                                .evictionPolicy(CacheEvictionPolicy.TTL_ONLY)
+                                .cleanupIntervalMillis(0)
+                        : NotCache.<K, V>builder()
+                                .maxSize(500)
+                                .ttlMinutes(10)
+                                .evictionPolicy(CacheEvictionPolicy.LRU)
+                                .maintenance(maintenance);
+                if (compressValues) {
+                    defaults.valueCodec(ValueCodec.deflate(new EntityCodec<>(new EntityTable<>(entityClass, database.getDialect()))));
+                }
+                cache = defaults.build();
+            }
             return new CachedRepository<>(this);
         }
     }
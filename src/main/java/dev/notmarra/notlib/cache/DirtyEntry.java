@@ -0,0 +1,9 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * A dirty cache value together with the write version it was read at.
+ * Returned by {@link NotCache#getDirtyEntries(java.util.Collection)}; hand the
+ * version back to {@link NotCache#markClean(Object, long)} after persisting.
+ */
+public record DirtyEntry<K, V>(K key, V value, long version) {
+}
@@ -0,0 +1,145 @@
+package dev.notmarra.notlib.cache;
+
+import dev.notmarra.notlib.database.EntityTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * {@link ValueCodec} for entities: every {@code @Column} field in
+ * {@link EntityTable#getColumns()} order, each as a one-byte type tag plus
+ * its payload (strings as int length + UTF-8). Covers exactly the column
+ * types {@link dev.notmarra.notlib.database.TypeMapper} supports. Also the
+ * record format of {@link CacheSnapshot}.
+ *
+ * <pre>{@code
+ * EntityTable<QuestState> table = new EntityTable<>(QuestState.class, db.getDialect());
+ * ValueCodec<QuestState> codec = ValueCodec.deflate(new EntityCodec<>(table));
+ * }</pre>
+ */
+public final class EntityCodec<V> implements ValueCodec<V> {
+    private static final byte NULL = 0, STRING = 1, INT = 2, LONG = 3, DOUBLE = 4, FLOAT = 5, BOOLEAN = 6, UUID_TAG = 7;
+
+    private final EntityTable<V> table;
+
+    public EntityCodec(EntityTable<V> table) {
+        this.table = table;
+        table.getColumns().forEach(fc -> fc.field().setAccessible(true));
+    }
+
+    @Override
+    public byte[] encode(V entity) {
+        ByteBuffer out = ByteBuffer.allocate(sizeOf(entity));
+        write(out, entity);
+        return out.array();
+    }
+
+    @Override
+    public V decode(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /** Exact number of bytes {@link #write} produces for {@code entity}. */
+    int sizeOf(V entity) {
+        int size = 0;
+        for (EntityTable.FieldColumn fc : table.getColumns()) size += valueSize(field(fc, entity));
+        return size;
+    }
+
+    void write(ByteBuffer out, V entity) {
+        for (EntityTable.FieldColumn fc : table.getColumns()) putValue(out, field(fc, entity));
+    }
+
+    V read(ByteBuffer in) {
+        try {
+            V entity = table.getEntityClass().getDeclaredConstructor().newInstance();
+            for (EntityTable.FieldColumn fc : table.getColumns()) {
+                Object value = getValue(in);
+                // A NULL read into a primitive keeps the field's default, as a fresh entity would
+                if (value != null || !fc.field().getType().isPrimitive()) fc.field().set(entity, value);
+            }
+            return entity;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + table.getEntityClass().getName(), e);
+        }
+    }
+
+    private static Object field(EntityTable.FieldColumn fc, Object entity) {
+        try {
+            return fc.field().get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read " + fc.annotation().name(), e);
+        }
+    }
+
+    // ── SINGLE VALUES ────────────────────────────────────────────────────────
+
+    static int valueSize(Object v) {
+        return switch (v) {
+            case null -> 1;
+            case Integer i -> 5;
+            case Long l -> 9;
+            case Double d -> 9;
+            case Float f -> 5;
+            case Boolean b -> 2;
+            case UUID u -> 17;
+            case String s -> 5 + utf8Length(s);
+            default -> throw new IllegalArgumentException("Cannot encode a " + v.getClass().getName());
+        };
+    }
+
+    static void putValue(ByteBuffer out, Object v) {
+        switch (v) {
+            case null -> out.put(NULL);
+            case Integer i -> out.put(INT).putInt(i);
+            case Long l -> out.put(LONG).putLong(l);
+            case Double d -> out.put(DOUBLE).putDouble(d);
+            case Float f -> out.put(FLOAT).putFloat(f);
+            case Boolean b -> out.put(BOOLEAN).put((byte) (b ? 1 : 0));
+            case UUID u -> out.put(UUID_TAG).putLong(u.getMostSignificantBits()).putLong(u.getLeastSignificantBits());
+            case String s -> {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.put(STRING).putInt(bytes.length).put(bytes);
+            }
+            default -> throw new IllegalArgumentException("Cannot encode a " + v.getClass().getName());
+        }
+    }
+
+    static Object getValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DOUBLE -> in.getDouble();
+            case FLOAT -> in.getFloat();
+            case BOOLEAN -> in.get() != 0;
+            case UUID_TAG -> new UUID(in.getLong(), in.getLong());
+            case STRING -> {
+                int length = in.getInt();
+                if (length < 0 || length > in.remaining()) throw new IllegalArgumentException("corrupt string length " + length);
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            default -> throw new IllegalArgumentException("unknown value tag " + tag);
+        };
+    }
+
+    // Same count String#getBytes(UTF_8) produces, without the copy; lone surrogates become '?'
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) length++;
+            else length += 3;
+        }
+        return length;
+    }
+}
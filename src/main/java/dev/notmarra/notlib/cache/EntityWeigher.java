@@ -0,0 +1,103 @@
+package dev.notmarra.notlib.cache;
+
+import dev.notmarra.notlib.database.DbDialect;
+import dev.notmarra.notlib.database.EntityTable;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Estimates the retained heap size of a {@code @Table} entity in bytes, for use
+ * with {@link NotCache.Builder#weigher(BiFunction)} and
+ * {@link NotCache.Builder#maximumWeight(long)}.
+ *
+ * The estimate assumes a 64-bit JVM with compressed oops: a 12-byte object
+ * header, 4-byte references, 8-byte alignment. Fixed-size columns
+ * (primitives, boxed numbers, {@link UUID}) are summed once from the
+ * {@link EntityTable} column types; {@link String} columns are measured per
+ * value since their length varies. A constant for the cache's own entry and
+ * map node is added so the weight reflects what a cached entity really costs.
+ * Fields without {@code @Column} are not counted.
+ *
+ * <pre>{@code
+ * NotCache<UUID, PlayerProfile> cache = NotCache.<UUID, PlayerProfile>builder()
+ *         .weigher(EntityWeigher.of(PlayerProfile.class))
+ *         .maximumWeight(8L * 1024 * 1024) // ~8 MB of profiles
+ *         .build();
+ * }</pre>
+ *
+ * @param <K> key type
+ * @param <V> entity type
+ */
+public final class EntityWeigher<K, V> implements BiFunction<K, V, Integer> {
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    // CacheEntry (~64 B) + HashMap.Node (32 B) + a boxed or UUID key (~32 B)
+    private static final int ENTRY_OVERHEAD = 128;
+    // String object + its byte[] header, excluding the characters themselves
+    private static final int STRING_OVERHEAD = 24 + 16;
+
+    private final int fixedSize;
+    private final Field[] stringFields;
+
+    private EntityWeigher(EntityTable<V> table) {
+        int fields = HEADER;
+        int boxed = 0;
+        List<Field> strings = new ArrayList<>();
+        for (EntityTable.FieldColumn fc : table.getColumns()) {
+            Class<?> type = fc.field().getType();
+            if (type.isPrimitive()) {
+                fields += primitiveSize(type);
+            } else {
+                fields += REFERENCE;
+                if (type == String.class) {
+                    fc.field().setAccessible(true);
+                    strings.add(fc.field());
+                } else if (type == UUID.class) {
+                    boxed += align(HEADER + 16);
+                } else {
+                    boxed += align(HEADER + 8); // Integer, Long, Double, Boolean, Float
+                }
+            }
+        }
+        this.fixedSize = ENTRY_OVERHEAD + align(fields) + boxed;
+        this.stringFields = strings.toArray(new Field[0]);
+    }
+
+    /** Builds a weigher from the {@code @Column} fields of {@code entityClass}. */
+    public static <K, V> EntityWeigher<K, V> of(Class<V> entityClass) {
+        // The dialect only affects DDL, not the column list
+        return new EntityWeigher<>(new EntityTable<>(entityClass, DbDialect.SQLITE));
+    }
+
+    /** Estimated bytes retained by caching {@code entity}. */
+    @Override
+    public Integer apply(K key, V entity) {
+        long size = fixedSize;
+        for (Field field : stringFields) {
+            try {
+                Object value = field.get(entity);
+                // Compact strings store Latin-1 in one byte per char; assume that as the common case
+                if (value != null) size += align(STRING_OVERHEAD + ((String) value).length());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Cannot read " + field.getName() + " for weighing", e);
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1; // boolean, byte
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
@@ -0,0 +1,81 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Intrusive doubly-linked deque threaded through {@link CacheEntry#prev} and
+ * {@link CacheEntry#next}. Every operation is O(1) and allocation-free, which
+ * lets eviction policies reorder entries on each hit without a second map.
+ *
+ * Not thread-safe – always used under the owning segment's lock.
+ */
+final class EntryDeque<V> {
+    private CacheEntry<V> head;
+    private CacheEntry<V> tail;
+    private int size;
+    private long weight;
+
+    int size() { return size; }
+    /** Sum of {@link CacheEntry#weight} over the queued entries. */
+    long weight() { return weight; }
+    boolean isEmpty() { return size == 0; }
+    CacheEntry<V> peekFirst() { return head; }
+
+    void addLast(CacheEntry<V> e) {
+        e.prev = tail;
+        e.next = null;
+        if (tail == null) head = e; else tail.next = e;
+        tail = e;
+        size++;
+        weight += e.weight;
+    }
+
+    CacheEntry<V> pollFirst() {
+        CacheEntry<V> e = head;
+        if (e != null) remove(e);
+        return e;
+    }
+
+    void remove(CacheEntry<V> e) {
+        if (e.prev == null) head = e.next; else e.prev.next = e.next;
+        if (e.next == null) tail = e.prev; else e.next.prev = e.prev;
+        e.prev = null;
+        e.next = null;
+        size--;
+        weight -= e.weight;
+    }
+
+    void moveToLast(CacheEntry<V> e) {
+        if (e == tail) return;
+        remove(e);
+        addLast(e);
+    }
+
+    /** Puts {@code replacement} exactly where {@code existing} was. */
+    void replace(CacheEntry<V> existing, CacheEntry<V> replacement) {
+        replacement.prev = existing.prev;
+        replacement.next = existing.next;
+        replacement.queue = existing.queue;
+        if (existing.prev == null) head = replacement; else existing.prev.next = replacement;
+        if (existing.next == null) tail = replacement; else existing.next.prev = replacement;
+        existing.prev = null;
+        existing.next = null;
+        weight += replacement.weight - existing.weight;
+    }
+
+    /** Accounts for a queued entry whose weight changed by {@code delta}. */
+    void adjustWeight(long delta) {
+        weight += delta;
+    }
+
+    void clear() {
+        CacheEntry<V> e = head;
+        while (e != null) {
+            CacheEntry<V> next = e.next;
+            e.prev = null;
+            e.next = null;
+            e = next;
+        }
+        head = tail = null;
+        size = 0;
+        weight = 0;
+    }
+}
@@ -0,0 +1,40 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Immutable snapshot of write-behind flush metrics for a {@link CachedRepository}.
+ *
+ * @param flushes         number of flushes that found dirty entries
+ * @param rowsWritten     rows persisted across all flushes
+ * @param rowsFailed      rows that could not be written even one at a time;
+ *                        they stay dirty and are retried by the next flush
+ * @param chunkRetries    chunk attempts that failed and were retried
+ * @param lastFlushMillis wall time of the most recent flush
+ * @param maxFlushMillis  slowest flush so far
+ * @param dirtyBacklog    dirty entries waiting for a flush right now,
+ *                        including evicted ones queued for the database
+ * @param flushLatency    distribution of flush durations
+ */
+public record FlushStats(
+        long flushes,
+        long rowsWritten,
+        long rowsFailed,
+        long chunkRetries,
+        long lastFlushMillis,
+        long maxFlushMillis,
+        int dirtyBacklog,
+        LatencySnapshot flushLatency
+) {
+    public FlushStats(long flushes, long rowsWritten, long rowsFailed, long chunkRetries,
+                      long lastFlushMillis, long maxFlushMillis) {
+        this(flushes, rowsWritten, rowsFailed, chunkRetries, lastFlushMillis, maxFlushMillis, 0, LatencySnapshot.EMPTY);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FlushStats{flushes=%d, written=%d, failed=%d, retries=%d, last=%dms, max=%dms, backlog=%d, latency={%s}}",
+                flushes, rowsWritten, rowsFailed, chunkRetries, lastFlushMillis, maxFlushMillis,
+                dirtyBacklog, flushLatency
+        );
+    }
+}
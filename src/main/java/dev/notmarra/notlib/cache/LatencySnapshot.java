@@ -0,0 +1,28 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Immutable summary of a latency distribution, as recorded by a cache for
+ * loads or by a {@link CachedRepository} for flushes. Percentiles are
+ * accurate to within about 12%.
+ *
+ * @param count      operations recorded
+ * @param meanMillis mean duration
+ * @param p50Millis  median duration
+ * @param p99Millis  99th percentile
+ * @param maxMillis  slowest operation
+ */
+public record LatencySnapshot(
+        long count,
+        double meanMillis,
+        double p50Millis,
+        double p99Millis,
+        double maxMillis
+) {
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0);
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                count, meanMillis, p50Millis, p99Millis, maxMillis);
+    }
+}
@@ -0,0 +1,204 @@
+package dev.notmarra.notlib.cache;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs the periodic housekeeping of every {@link NotCache} (expiry sweeps) and
+ * {@link CachedRepository} (write-behind flushes) from a single timer thread,
+ * instead of one idle platform thread per cache and per repository.
+ *
+ * <p>The timer thread only keeps time; each due task is handed to a worker
+ * {@link Executor}:
+ * <ul>
+ *   <li>{@link #shared()} – the default; the process-wide scheduler, running
+ *       each task on its own virtual thread like {@link #virtualThreads}.</li>
+ *   <li>{@link #virtualThreads(String)} – every run gets its own virtual
+ *       thread, so a slow database flush never delays another cache's
+ *       expiry sweep.</li>
+ *   <li>{@link #onExecutor(String, Executor)} – any executor, e.g. the Paper
+ *       async scheduler via {@code NotPlugin#foliaAsyncExecutor()}.</li>
+ * </ul>
+ *
+ * <p>Repeating tasks are spread out: the first run starts at a random point
+ * within the interval and every following delay varies by up to
+ * {@code ± jitterMillis}, so twenty repositories with the same 30 s flush
+ * interval do not all hit the database in the same second. A task never
+ * overlaps with itself – the next run is only scheduled once the previous
+ * one has finished.
+ *
+ * <pre>{@code
+ * MaintenanceScheduler maintenance = MaintenanceScheduler.onExecutor("MyPlugin", plugin.foliaAsyncExecutor());
+ *
+ * NotCache<UUID, PlayerProfile> cache = NotCache.<UUID, PlayerProfile>builder()
+ *         .maintenance(maintenance)
+ *         .cleanupIntervalMillis(60_000)
+ *         .cleanupJitterMillis(5_000)
+ *         .build();
+ *
+ * // on disable, after closing the caches and repositories
+ * maintenance.shutdown();
+ * }</pre>
+ */
+public final class MaintenanceScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(MaintenanceScheduler.class.getName());
+
+    private static volatile MaintenanceScheduler shared;
+
+    private final String name;
+    private final ScheduledExecutorService timer;
+    // Runs the tasks; the timer thread itself never does I/O
+    private final Executor worker;
+
+    private MaintenanceScheduler(String name, Executor worker) {
+        this.name = name;
+        this.worker = worker;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-Maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ── FACTORIES ────────────────────────────────────────────────────────────
+
+    /**
+     * The process-wide default used by every cache and repository that is not
+     * given its own scheduler. Created on first use; lives as long as the JVM.
+     */
+    public static MaintenanceScheduler shared() {
+        MaintenanceScheduler scheduler = shared;
+        if (scheduler == null) {
+            synchronized (MaintenanceScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null) shared = scheduler = virtualThreads("NotLib");
+            }
+        }
+        return scheduler;
+    }
+
+    /** Runs each task on a fresh virtual thread. */
+    public static MaintenanceScheduler virtualThreads(String name) {
+        ThreadFactory factory = Thread.ofVirtual().name(name + "-Maintenance-", 0).factory();
+        return new MaintenanceScheduler(name, runnable -> factory.newThread(runnable).start());
+    }
+
+    /** Hands each task to {@code executor}, e.g. a Paper/Folia async scheduler. */
+    public static MaintenanceScheduler onExecutor(String name, Executor executor) {
+        return new MaintenanceScheduler(name, Objects.requireNonNull(executor, "executor"));
+    }
+
+    // ── SCHEDULING ───────────────────────────────────────────────────────────
+
+    /** Handle to a scheduled task. */
+    public interface Task {
+        /** Stops future runs; a run already in progress is not interrupted. */
+        void cancel();
+    }
+
+    /**
+     * Runs {@code task} every {@code intervalMillis} (± {@code jitterMillis}),
+     * starting at a random offset within the first interval.
+     */
+    public Task scheduleRepeating(String taskName, Runnable task, long intervalMillis, long jitterMillis) {
+        if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be positive");
+        Repeating repeating = new Repeating(taskName, task, intervalMillis, Math.max(0, Math.min(jitterMillis, intervalMillis)));
+        repeating.scheduleNext(ThreadLocalRandom.current().nextLong(intervalMillis) + 1);
+        return repeating;
+    }
+
+    /** Runs {@code task} once after {@code delayMillis}. */
+    public Task schedule(String taskName, Runnable task, long delayMillis) {
+        ScheduledFuture<?> future = timer.schedule(() -> dispatch(taskName, task), delayMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+
+    /**
+     * Stops the timer thread. Pending runs are dropped; the shared scheduler
+     * ignores this call since other caches may still depend on it.
+     */
+    public void shutdown() {
+        if (this == shared) return;
+        timer.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return timer.isShutdown();
+    }
+
+    // ── INTERNAL ─────────────────────────────────────────────────────────────
+
+    /** @return {@code false} if the worker executor refused the task */
+    private boolean dispatch(String taskName, Runnable task) {
+        try {
+            worker.execute(() -> runSafely(taskName, task));
+            return true;
+        } catch (RuntimeException e) {
+            // Not only RejectedExecutionException: the Paper scheduler throws
+            // IllegalPluginAccessException once the plugin is disabled
+            LOGGER.warning("[" + name + "] Maintenance task " + taskName + " could not be dispatched: " + e);
+            return false;
+        }
+    }
+
+    private void runSafely(String taskName, Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            // A failing sweep or flush must not stop its next run
+            LOGGER.severe("[" + name + "] Maintenance task " + taskName + " failed: " + t.getMessage());
+        }
+    }
+
+    private final class Repeating implements Task {
+        private final String taskName;
+        private final Runnable task;
+        private final long intervalMillis;
+        private final long jitterMillis;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> next;
+
+        Repeating(String taskName, Runnable task, long intervalMillis, long jitterMillis) {
+            this.taskName = taskName;
+            this.task = task;
+            this.intervalMillis = intervalMillis;
+            this.jitterMillis = jitterMillis;
+        }
+
+        void scheduleNext(long delayMillis) {
+            if (cancelled) return;
+            try {
+                next = timer.schedule(() -> {
+                    if (!dispatch(taskName, this::runAndReschedule)) scheduleNext(intervalMillis);
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                cancelled = true; // scheduler shut down
+            }
+        }
+
+        private void runAndReschedule() {
+            try {
+                if (!cancelled) task.run();
+            } finally {
+                long jitter = jitterMillis == 0 ? 0 : ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+                scheduleNext(Math.max(1, intervalMillis + jitter));
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> future = next;
+            if (future != null) future.cancel(false);
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package dev.notmarra.notlib.cache;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * Thread-safe in-memory cache with configurable TTL, eviction policy,
  * dirty-write tracking, and background expiry cleanup.
  *
+ * <p>The keyspace is split into {@code concurrencyLevel} independently locked
+ * segments, each with its own eviction order and an equal share of
+ * {@code maxSize}. The default of one segment behaves exactly like a single
+ * global LRU/FIFO/W-TinyLFU; raise it for caches read from many region threads at once
+ * (e.g. on Folia), where an access-ordered read is really a write.
+ *
  * <pre>{@code
  * NotCache<UUID, PlayerProfile> cache = NotCache.<UUID, PlayerProfile>builder()
  *         .maxSize(1000)
  *         .ttlMillis(5 * 60 * 1000)        // 5 minutes
- *         .evictionPolicy(CacheEvictionPolicy.LRU)
+ *         .evictionPolicy(CacheEvictionPolicy.LRU)   // or W_TINY_LFU for scan-heavy traffic
  *         .build();
  *
  * cache.put(player.getUniqueId(), profile);
@@ -36,57 +57,92 @@ public class NotCache<K, V> {
 
     // ── INTERNAL STORAGE ─────────────────────────────────────────────────────
 
-    // LinkedHashMap preserves insertion order (FIFO) and access order (LRU)
-    private final LinkedHashMap<K, CacheEntry<V>> store;
-    private final Object lock = new Object();
+    // Each segment guards its own map and eviction order; a key always maps to the same segment
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
 
     // ── CONFIGURATION ────────────────────────────────────────────────────────
 
-    private final int maxSize;
+    // Null when capacity is counted in entries
+    private final BiFunction<? super K, ? super V, Integer> weigher;
+    // maxSize, or maximumWeight with a weigher; changed by resize()
+    private volatile long capacity;
     private final long defaultTtlMillis;
     private final CacheEvictionPolicy evictionPolicy;
+    private final Ticker ticker;
+    // Null when values are stored as they are
+    private final ValueCodec<V> codec;
+    // Decoded values of recently read keys; null without a codec or when disabled
+    private final DecodedSlots<K, V> decoded;
 
     // ── STATS ────────────────────────────────────────────────────────────────
 
-    private final AtomicLong hits       = new AtomicLong();
-    private final AtomicLong misses     = new AtomicLong();
-    private final AtomicLong evictions  = new AtomicLong();
-    private final AtomicLong expirations = new AtomicLong();
+    // Adders rather than atomics: every read bumps one, and they must not become the contention point
+    private final LongAdder hits       = new LongAdder();
+    private final LongAdder misses     = new LongAdder();
+    private final LongAdder evictions  = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder admissionRejections = new LongAdder();
+    private final LongAdder decodes     = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+    private final LongAdder decodedHits = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures  = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    // ── IN-FLIGHT LOADS ──────────────────────────────────────────────────────
+
+    // One future per key currently being loaded; later callers wait on it
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    // ── REMOVAL LISTENERS ────────────────────────────────────────────────────
+
+    private final CopyOnWriteArrayList<RemovalListener<K, V>> removalListeners = new CopyOnWriteArrayList<>();
+    // Told which key was written; lets CachedRepository keep its secondary indexes in step
+    private final CopyOnWriteArrayList<Consumer<K>> writeObservers = new CopyOnWriteArrayList<>();
 
     // ── BACKGROUND CLEANUP ───────────────────────────────────────────────────
 
-    private final ScheduledExecutorService scheduler;
+    // Expiry sweep on the shared maintenance scheduler; null when disabled
+    private final MaintenanceScheduler.Task cleanupTask;
+
+    // ── JMX ──────────────────────────────────────────────────────────────────
+
+    // Null unless the builder named the cache (or registration failed)
+    private final CacheMetricsBean metricsBean;
 
     // ── CONSTRUCTOR ──────────────────────────────────────────────────────────
 
+    @SuppressWarnings("unchecked")
     private NotCache(Builder<K, V> b) {
-        this.maxSize = b.maxSize;
+        this.weigher = b.weigher;
+        this.capacity = weigher != null ? b.maximumWeight : b.maxSize;
         this.defaultTtlMillis = b.ttlMillis;
         this.evictionPolicy = b.evictionPolicy;
+        this.ticker = b.ticker;
+        this.codec = b.valueCodec;
+        this.decoded = codec != null && b.decodedCacheSize > 0 ? new DecodedSlots<>(b.decodedCacheSize) : null;
+        this.removalListeners.addAll(b.removalListeners);
 
-        boolean accessOrder = evictionPolicy == CacheEvictionPolicy.LRU;
-        this.store = new LinkedHashMap<>(16, 0.75f, accessOrder) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
-                // Actual eviction is handled manually so we can track stats
-                return false;
-            }
-        };
-
-        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "NotCache-Cleanup");
-            t.setDaemon(true);
-            return t;
-        });
-
-        if (b.cleanupIntervalMillis > 0) {
-            scheduler.scheduleAtFixedRate(
-                    this::evictExpired,
-                    b.cleanupIntervalMillis,
-                    b.cleanupIntervalMillis,
-                    TimeUnit.MILLISECONDS
-            );
+        // Round up to a power of two so the segment index is a simple mask
+        int segmentCount = Integer.highestOneBit(Math.max(1, b.concurrencyLevel) * 2 - 1);
+        while (segmentCount > 1 && segmentCount > capacity) segmentCount >>>= 1; // no empty segments
+        this.segments = newSegments(segmentCount);
+        this.segmentMask = segmentCount - 1;
+        int expectedSize = Math.max(1, b.maxSize / segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            long share = shareOf(capacity, i);
+            AccessPolicy<V> policy = AccessPolicy.create(evictionPolicy, share, expectedSize, admissionRejections);
+            segments[i] = new Segment<>(share, policy, codec, ticker.read());
         }
+
+        this.cleanupTask = b.cleanupIntervalMillis > 0
+                ? b.maintenance.scheduleRepeating("NotCache-Cleanup", this::evictExpired,
+                        b.cleanupIntervalMillis, b.cleanupJitterMillis >= 0 ? b.cleanupJitterMillis : b.cleanupIntervalMillis / 10)
+                : null;
+        this.metricsBean = b.jmxName != null
+                ? CacheMetricsBean.register(b.jmxName, this::getStats, null, this::resetStats)
+                : null;
     }
 
     // ── PUBLIC API ───────────────────────────────────────────────────────────
@@ -98,55 +154,193 @@ public class NotCache<K, V> {
 
     /** Store a value with a custom TTL (milliseconds). 0 = immortal. */
     public void put(K key, V value, long ttlMillis) {
-        synchronized (lock) {
-            store.put(key, new CacheEntry<>(value, ttlMillis));
-            enforceCapacity();
+        Segment<K, V> seg = segmentFor(key);
+        CacheEntry<V> entry = newEntry(key, value, ttlMillis); // encoding runs outside the lock
+        synchronized (seg.lock) {
+            seg.insert(key, entry);
+            enforceCapacity(seg);
         }
+        notifyRemovals(seg);
+        notifyWrite(key);
     }
 
     /**
      * Retrieve a value. Returns empty if missing or expired.
      */
     public Optional<V> get(K key) {
-        synchronized (lock) {
-            CacheEntry<V> entry = store.get(key);
+        return Optional.ofNullable(getIfPresent(key));
+    }
+
+    /**
+     * Allocation-free variant of {@link #get(Object)}: returns the cached value,
+     * or {@code null} if it is missing or expired. Prefer this on hot paths
+     * (e.g. per-tick or per-event lookups) where the {@link Optional} wrapper
+     * is pure overhead.
+     */
+    public V getIfPresent(K key) {
+        return getIfPresent(key, null, 0L, null);
+    }
+
+    /**
+     * Shared hit path. With a {@code refreshLoader}, a clean entry written more
+     * than {@code refreshAfterNanos} ago is still returned, and a background
+     * reload is started once the segment lock has been released.
+     */
+    private V getIfPresent(K key, Function<K, V> refreshLoader, long refreshAfterNanos, Executor executor) {
+        Segment<K, V> seg = segmentFor(key);
+        long now = ticker.read();
+        CacheEntry<V> refreshFrom = null;
+        V value;
+        byte[] encoded = null;
+        boolean expired = false;
+        synchronized (seg.lock) {
+            CacheEntry<V> entry = seg.store.get(key);
             if (entry == null) {
-                misses.incrementAndGet();
-                return Optional.empty();
+                seg.policy.onMiss(key);
+                misses.increment();
+                return null;
             }
-            if (entry.isExpired()) {
-                store.remove(key);
-                expirations.incrementAndGet();
-                misses.incrementAndGet();
-                return Optional.empty();
+            if (entry.isExpired(now)) {
+                removeEntry(seg, key, RemovalCause.EXPIRED);
+                seg.policy.onMiss(key);
+                expirations.increment();
+                misses.increment();
+                value = null;
+                expired = true;
+            } else {
+                if (!entry.pinned) seg.policy.onAccess(entry);
+                hits.increment();
+                value = entry.getValue(now);
+                encoded = entry.encoded;
+                if (refreshLoader != null && !entry.isDirty() && now - entry.createdAtNanos() >= refreshAfterNanos) {
+                    refreshFrom = entry;
+                }
             }
-            hits.incrementAndGet();
-            return Optional.ofNullable(entry.getValue());
         }
+        if (expired) notifyRemovals(seg);
+        if (refreshFrom != null) refresh(key, refreshFrom, refreshLoader, executor);
+        return encoded != null ? decode(key, encoded) : value;
     }
 
     /**
      * Return cached value if present; otherwise compute, cache, and return it.
+     *
+     * Loads are coalesced per key: if another thread is already loading the
+     * same key, this call waits for that load instead of running the loader
+     * again, so a burst of lookups for one missing key costs a single query.
+     * A {@code null} result is shared with the waiters but not cached; a
+     * loader exception is rethrown to every waiter.
      */
     public V getOrLoad(K key, Function<K, V> loader) {
         return getOrLoad(key, loader, defaultTtlMillis);
     }
 
     public V getOrLoad(K key, Function<K, V> loader, long ttlMillis) {
-        Optional<V> cached = get(key);
-        if (cached.isPresent()) return cached.get();
-        V value = loader.apply(key);
-        if (value != null) put(key, value, ttlMillis);
-        return value;
+        V cached = getIfPresent(key);
+        if (cached != null) return cached;
+        return load(key, loader, ttlMillis);
+    }
+
+    /**
+     * Async variant of {@link #getOrLoad(Object, Function)}. A hit completes
+     * immediately; a miss runs the loader on {@code executor}, sharing one
+     * in-flight load with every other sync or async caller for the same key.
+     */
+    public CompletableFuture<V> getOrLoadAsync(K key, Function<K, V> loader, Executor executor) {
+        return getOrLoadAsync(key, loader, defaultTtlMillis, executor);
+    }
+
+    public CompletableFuture<V> getOrLoadAsync(K key, Function<K, V> loader, long ttlMillis, Executor executor) {
+        V cached = getIfPresent(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return loadAsync(key, loader, ttlMillis, executor);
+    }
+
+    /**
+     * Refresh-ahead variant of {@link #getOrLoad(Object, Function)}. An entry
+     * written more than {@code refreshAfterMillis} ago is returned straight
+     * away while {@code loader} reloads it in the background on
+     * {@code executor}; only a true miss blocks on the loader.
+     *
+     * The reload only replaces the entry if it is still the same, clean entry
+     * when the load finishes – a concurrent write, invalidation or
+     * write-behind update always wins. If the loader returns {@code null}
+     * (row deleted) the stale entry is dropped.
+     */
+    public V getOrRefresh(K key, Function<K, V> loader, long refreshAfterMillis, Executor executor) {
+        V cached = getIfPresent(key, loader, TimeUnit.MILLISECONDS.toNanos(refreshAfterMillis), executor);
+        if (cached != null) return cached;
+        return load(key, loader, defaultTtlMillis);
+    }
+
+    /** Async variant of {@link #getOrRefresh(Object, Function, long, Executor)}; never blocks the caller. */
+    public CompletableFuture<V> getOrRefreshAsync(K key, Function<K, V> loader, long refreshAfterMillis, Executor executor) {
+        V cached = getIfPresent(key, loader, TimeUnit.MILLISECONDS.toNanos(refreshAfterMillis), executor);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        return loadAsync(key, loader, defaultTtlMillis, executor);
+    }
+
+    /**
+     * Bulk variant of {@link #getOrLoad(Object, Function)}. Cached values are
+     * returned directly; all remaining keys are passed to {@code loader} in a
+     * single call (e.g. one {@code WHERE id IN (...)} query) and the values it
+     * returns are cached. Keys another thread is already loading are awaited
+     * instead of being loaded twice. Keys the loader does not return are left
+     * out of the result and not cached.
+     *
+     * @return the found values, in the iteration order of {@code keys}
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<? super Set<K>, Map<K, V>> loader) {
+        BulkLoad<K, V> bulk = partition(keys);
+        if (!bulk.owned.isEmpty()) runBulkLoad(bulk.owned, loader);
+        for (Map.Entry<K, CompletableFuture<V>> pending : bulk.pending()) {
+            V value = await(pending.getValue());
+            if (value != null) bulk.found.put(pending.getKey(), value);
+        }
+        return bulk.ordered(keys);
+    }
+
+    /**
+     * Async variant of {@link #getAll(Collection, Function)}: completes
+     * immediately when every key is cached, otherwise runs {@code loader} for
+     * the misses on {@code executor}.
+     */
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys, Function<? super Set<K>, Map<K, V>> loader,
+                                                   Executor executor) {
+        BulkLoad<K, V> bulk = partition(keys);
+        if (!bulk.owned.isEmpty()) {
+            try {
+                executor.execute(() -> runBulkLoad(bulk.owned, loader));
+            } catch (RuntimeException e) {
+                bulk.owned.forEach((key, load) -> {
+                    loading.remove(key, load);
+                    load.completeExceptionally(e);
+                });
+            }
+        }
+        List<Map.Entry<K, CompletableFuture<V>>> pending = bulk.pending();
+        if (pending.isEmpty()) return CompletableFuture.completedFuture(bulk.ordered(keys));
+        return CompletableFuture.allOf(pending.stream().map(Map.Entry::getValue).toArray(CompletableFuture[]::new))
+                .thenApply($ -> {
+                    pending.forEach(e -> {
+                        V value = e.getValue().join();
+                        if (value != null) bulk.found.put(e.getKey(), value);
+                    });
+                    return bulk.ordered(keys);
+                });
     }
 
     /**
      * Mark an existing entry as dirty (needs write-back to DB).
      */
     public void markDirty(K key) {
-        synchronized (lock) {
-            CacheEntry<V> entry = store.get(key);
-            if (entry != null) entry.markDirty();
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            CacheEntry<V> entry = seg.store.get(key);
+            if (entry != null) {
+                entry.markDirty();
+                seg.touchDirty(key, entry);
+            }
         }
     }
 
@@ -154,112 +348,873 @@ public class NotCache<K, V> {
      * Update value in cache and mark it dirty.
      */
     public void update(K key, V value) {
-        synchronized (lock) {
-            CacheEntry<V> entry = store.get(key);
+        Segment<K, V> seg = segmentFor(key);
+        byte[] encoded = codec != null ? encode(key, value) : null;
+        synchronized (seg.lock) {
+            CacheEntry<V> entry = seg.store.get(key);
             if (entry != null) {
-                entry.setValue(value); // setValue marks dirty internally
+                if (encoded != null) {
+                    seg.reencode(entry, encoded);
+                    entry.markDirty();
+                } else {
+                    entry.setValue(value); // setValue marks dirty internally
+                }
+                seg.touchDirty(key, entry);
+                if (weigher != null) {
+                    seg.reweigh(entry, weigh(key, value));
+                    enforceCapacity(seg);
+                }
             } else {
-                CacheEntry<V> newEntry = new CacheEntry<>(value, defaultTtlMillis);
+                CacheEntry<V> newEntry = newEntry(key, value, defaultTtlMillis, encoded);
                 newEntry.markDirty();
-                store.put(key, newEntry);
-                enforceCapacity();
+                newEntry.version = ++seg.writeSeq;
+                seg.insert(key, newEntry);
+                enforceCapacity(seg);
             }
         }
+        notifyRemovals(seg);
+        notifyWrite(key);
     }
 
     /** Remove an entry from cache. */
     public void invalidate(K key) {
-        synchronized (lock) {
-            store.remove(key);
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            removeEntry(seg, key, RemovalCause.EXPLICIT);
         }
+        notifyRemovals(seg);
     }
 
     /** Remove all entries. */
     public void invalidateAll() {
-        synchronized (lock) {
-            store.clear();
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                if (!removalListeners.isEmpty()) {
+                    seg.store.forEach((key, entry) -> seg.pending.add(new Removed<>(
+                            key, stored(entry), RemovalCause.EXPLICIT, entry.isDirty())));
+                }
+                seg.clear();
+            }
+            notifyRemovals(seg);
+        }
+    }
+
+    /**
+     * Registers a listener for entries leaving the cache. Use it to persist
+     * dirty entries before they are lost to eviction or expiry.
+     */
+    public void addRemovalListener(RemovalListener<K, V> listener) {
+        removalListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    // ── PINNING ──────────────────────────────────────────────────────────────
+
+    /**
+     * Keeps the entry for {@code key} in the cache until {@link #unpin(Object)}:
+     * it is neither evicted for size nor expired, and does not count against
+     * {@code maxSize}/{@code maximumWeight}. The key may be pinned before its
+     * value is loaded; the entry is pinned as soon as it is stored.
+     * {@code invalidate} still removes the entry, but the pin stays.
+     *
+     * <pre>{@code
+     * cache.pin(player.getUniqueId());   // on join, before loading
+     * cache.unpin(player.getUniqueId()); // on quit, after saving
+     * }</pre>
+     */
+    public void pin(K key) {
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            seg.pin(key);
+        }
+    }
+
+    /** Releases a pin; the entry rejoins the eviction policy with a fresh TTL. */
+    public void unpin(K key) {
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            seg.unpin(key, ticker.read());
+            enforceCapacity(seg);
+        }
+        notifyRemovals(seg);
+    }
+
+    public boolean isPinned(K key) {
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            return seg.pinned.contains(key);
+        }
+    }
+
+    /** Number of pinned keys, whether or not their entries are loaded. */
+    public int pinnedCount() {
+        int count = 0;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) { count += seg.pinned.size(); }
+        }
+        return count;
+    }
+
+    /** Snapshot of every live value, in no particular order. */
+    public List<V> values() {
+        long now = ticker.read();
+        List<V> values = new ArrayList<>();
+        List<Map.Entry<K, byte[]>> encoded = codec != null ? new ArrayList<>() : null;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                seg.store.forEach((key, entry) -> {
+                    if (entry.isExpired(now)) return;
+                    if (encoded != null) encoded.add(Map.entry(key, entry.encoded));
+                    else values.add(entry.peekValue());
+                });
+            }
         }
+        if (encoded != null) encoded.forEach(e -> values.add(decode(e.getKey(), e.getValue())));
+        return values;
+    }
+
+    /**
+     * The {@code limit} most recently read or written live entries, most
+     * recent first, for warm-restart snapshots. Dirty entries come with a
+     * {@code null} value since their state is not safely persisted yet.
+     */
+    List<Map.Entry<K, V>> hottest(int limit) {
+        record Recent<K, V>(long accessed, Map.Entry<K, V> entry) {}
+        long now = ticker.read();
+        List<Recent<K, V>> all = new ArrayList<>();
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                seg.store.forEach((key, entry) -> {
+                    if (entry.isExpired(now)) return;
+                    V value = entry.isDirty() ? null : materialize(key, stored(entry));
+                    all.add(new Recent<>(entry.lastAccessedNanos(), new AbstractMap.SimpleImmutableEntry<>(key, value)));
+                });
+            }
+        }
+        // Ticker readings are only comparable by difference
+        all.sort((a, b) -> Long.signum(b.accessed() - a.accessed()));
+        List<Map.Entry<K, V>> hottest = new ArrayList<>(Math.min(limit, all.size()));
+        for (int i = 0; i < all.size() && i < limit; i++) hottest.add(all.get(i).entry());
+        return hottest;
+    }
+
+    /**
+     * Calls {@code observer} with the key after every put, update or refresh,
+     * once the segment lock has been released. Observers that need the new
+     * value read it back with {@link #peek(Object)}; removals are reported to
+     * the {@link RemovalListener}s instead.
+     */
+    void addWriteObserver(Consumer<K> observer) {
+        writeObservers.add(Objects.requireNonNull(observer, "observer"));
     }
 
     /** Check whether the cache contains a non-expired entry for this key. */
     public boolean contains(K key) {
-        return get(key).isPresent();
+        return getIfPresent(key) != null;
     }
 
     // ── DIRTY TRACKING ───────────────────────────────────────────────────────
 
     /**
-     * Returns all entries that have been modified but not yet persisted.
+     * Returns all entries that have been modified but not yet persisted,
+     * oldest modification first within each segment. Only the per-segment
+     * dirty queues are visited, so the cost is O(dirty) regardless of how
+     * many clean entries the cache holds.
      */
     public Map<K, V> getDirtyEntries() {
-        synchronized (lock) {
-            return store.entrySet().stream()
-                    .filter(e -> e.getValue().isDirty() && !e.getValue().isExpired())
-                    .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getValue()));
+        Map<K, Object> stored = new LinkedHashMap<>();
+        long now = ticker.read();
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                for (K key : seg.dirty) {
+                    CacheEntry<V> entry = seg.store.get(key);
+                    if (!entry.isExpired(now)) stored.put(key, stored(entry));
+                }
+            }
         }
+        Map<K, V> dirty = new LinkedHashMap<>();
+        stored.forEach((key, value) -> dirty.put(key, materialize(key, value)));
+        return dirty;
     }
 
     /**
      * Mark all currently dirty entries as clean (call after successful flush).
      */
     public void markAllClean() {
-        synchronized (lock) {
-            store.values().forEach(CacheEntry::markClean);
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                for (K key : seg.dirty) seg.store.get(key).markClean();
+                seg.dirty.clear();
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the keys currently waiting to be written back, oldest
+     * modification first within each segment.
+     */
+    public List<K> dirtyKeys() {
+        List<K> keys = new ArrayList<>();
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) { keys.addAll(seg.dirty); }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the current value and write version of each of {@code keys}
+     * that is still dirty. Keys that were cleaned, removed or expired since
+     * {@link #dirtyKeys()} was taken are skipped. Pass each version back to
+     * {@link #markClean(Object, long)} once the value has been persisted.
+     */
+    public List<DirtyEntry<K, V>> getDirtyEntries(Collection<K> keys) {
+        List<DirtyEntry<K, V>> result = new ArrayList<>(keys.size());
+        long now = ticker.read();
+        for (K key : keys) {
+            Segment<K, V> seg = segmentFor(key);
+            Object stored = null;
+            long version = 0;
+            synchronized (seg.lock) {
+                CacheEntry<V> entry = seg.store.get(key);
+                if (entry != null && entry.isDirty() && !entry.isExpired(now)) {
+                    stored = stored(entry);
+                    version = entry.version;
+                }
+            }
+            if (stored != null) result.add(new DirtyEntry<>(key, materialize(key, stored), version));
+        }
+        return result;
+    }
+
+    /**
+     * Marks the entry clean only if it has not been modified since
+     * {@code version} was read, so an update made while a flush was writing
+     * stays dirty and is picked up by the next flush.
+     *
+     * @return {@code true} if the entry was cleaned
+     */
+    public boolean markClean(K key, long version) {
+        Segment<K, V> seg = segmentFor(key);
+        synchronized (seg.lock) {
+            CacheEntry<V> entry = seg.store.get(key);
+            if (entry == null || !entry.isDirty() || entry.version != version) return false;
+            entry.markClean();
+            seg.dirty.remove(key);
+            return true;
         }
     }
 
+    /** Number of entries waiting to be written back. */
+    public int dirtyCount() {
+        int count = 0;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) { count += seg.dirty.size(); }
+        }
+        return count;
+    }
+
     // ── EXPIRY / EVICTION ────────────────────────────────────────────────────
 
-    /** Remove all expired entries. Called automatically by background thread. */
+    /**
+     * Remove all expired entries. Called automatically by background thread.
+     * Each segment's timing wheel only visits the entries that are due, so the
+     * cost is proportional to the number of expired entries, not the cache size.
+     */
+    @SuppressWarnings("unchecked")
     public int evictExpired() {
-        synchronized (lock) {
-            List<K> toRemove = store.entrySet().stream()
-                    .filter(e -> e.getValue().isExpired())
-                    .map(Map.Entry::getKey)
-                    .toList();
-            toRemove.forEach(store::remove);
-            expirations.addAndGet(toRemove.size());
-            return toRemove.size();
+        int removed = 0;
+        for (Segment<K, V> seg : segments) {
+            int[] expired = {0};
+            long now = ticker.read();
+            synchronized (seg.lock) {
+                seg.wheel.advance(now, entry -> {
+                    // The wheel already unlinked the entry; drop it from map and policy
+                    seg.store.remove((K) entry.key);
+                    seg.release(entry);
+                    seg.policy.onRemove(entry);
+                    if (entry.isDirty()) seg.dirty.remove((K) entry.key);
+                    if (!removalListeners.isEmpty()) {
+                        seg.pending.add(new Removed<>(
+                                (K) entry.key, stored(entry), RemovalCause.EXPIRED, entry.isDirty()));
+                    }
+                    expired[0]++;
+                    return true;
+                });
+            }
+            notifyRemovals(seg);
+            removed += expired[0];
         }
+        expirations.add(removed);
+        return removed;
     }
 
-    private void enforceCapacity() {
+    @SuppressWarnings("unchecked")
+    private void enforceCapacity(Segment<K, V> seg) {
         if (evictionPolicy == CacheEvictionPolicy.TTL_ONLY) return;
-        while (store.size() > maxSize) {
-            K eldest = store.keySet().iterator().next(); // LRU or FIFO depending on accessOrder
-            store.remove(eldest);
-            evictions.incrementAndGet();
+        while (seg.weight > seg.capacity) {
+            CacheEntry<V> victim = seg.policy.victim(); // LRU/FIFO head or TinyLFU loser
+            if (victim == null) break;
+            removeEntry(seg, (K) victim.key, RemovalCause.SIZE);
+            evictions.increment();
         }
     }
 
+    private CacheEntry<V> newEntry(K key, V value, long ttlMillis) {
+        return newEntry(key, value, ttlMillis, codec != null ? encode(key, value) : null);
+    }
+
+    private CacheEntry<V> newEntry(K key, V value, long ttlMillis, byte[] encoded) {
+        CacheEntry<V> entry = new CacheEntry<>(encoded != null ? null : value, ttlMillis, ticker.read());
+        entry.encoded = encoded;
+        if (weigher != null) entry.weight = weigh(key, value);
+        return entry;
+    }
+
+    // ── VALUE CODEC ──────────────────────────────────────────────────────────
+
+    /** Encodes outside any lock; the written value is the likeliest next read, so it seeds the decoded slots. */
+    private byte[] encode(K key, V value) {
+        byte[] encoded = codec.encode(value);
+        if (decoded != null) decoded.put(key, encoded, value);
+        return encoded;
+    }
+
+    private V decode(K key, byte[] encoded) {
+        if (decoded != null) {
+            V hit = decoded.get(key, encoded);
+            if (hit != null) {
+                decodedHits.increment();
+                return hit;
+            }
+        }
+        long start = System.nanoTime();
+        V value = codec.decode(encoded);
+        decodeNanos.add(System.nanoTime() - start);
+        decodes.increment();
+        if (decoded != null) decoded.put(key, encoded, value);
+        return value;
+    }
+
+    // Under the segment lock: what to hand to materialize() once the lock is released
+    private Object stored(CacheEntry<V> entry) {
+        return codec != null ? entry.encoded : entry.peekValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V materialize(K key, Object stored) {
+        return codec != null ? decode(key, (byte[]) stored) : (V) stored;
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.apply(key, value);
+        if (weight < 0) throw new IllegalArgumentException("Negative weight " + weight + " for key " + key);
+        return weight;
+    }
+
+    // Caller holds seg.lock; the notification is delivered by notifyRemovals once it is released
+    private void removeEntry(Segment<K, V> seg, K key, RemovalCause cause) {
+        CacheEntry<V> entry = seg.remove(key);
+        if (entry != null && !removalListeners.isEmpty()) {
+            seg.pending.add(new Removed<>(key, stored(entry), cause, entry.isDirty()));
+        }
+    }
+
+    /** Delivers queued removals of this segment; must be called without holding its lock. */
+    private void notifyRemovals(Segment<K, V> seg) {
+        if (removalListeners.isEmpty()) return;
+        List<Removed<K>> batch;
+        synchronized (seg.lock) {
+            if (seg.pending.isEmpty()) return;
+            batch = new ArrayList<>(seg.pending);
+            seg.pending.clear();
+        }
+        for (Removed<K> removed : batch) {
+            RemovalNotification<K, V> notification = new RemovalNotification<>(
+                    removed.key(), materialize(removed.key(), removed.stored()), removed.cause(), removed.dirty());
+            for (RemovalListener<K, V> listener : removalListeners) {
+                try {
+                    listener.onRemoval(notification);
+                } catch (RuntimeException e) {
+                    LOGGER.warning("NotCache removal listener failed for key " + notification.key() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void notifyWrite(K key) {
+        for (Consumer<K> observer : writeObservers) {
+            try {
+                observer.accept(key);
+            } catch (RuntimeException e) {
+                LOGGER.warning("NotCache write observer failed for key " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ── LOADING ──────────────────────────────────────────────────────────────
+
+    private V load(K key, Function<K, V> loader, long ttlMillis) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) return await(inFlight);
+
+        runLoad(key, loader, ttlMillis, load);
+        return await(load);
+    }
+
+    private CompletableFuture<V> loadAsync(K key, Function<K, V> loader, long ttlMillis, Executor executor) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, load);
+        if (inFlight != null) return inFlight.copy(); // callers must not complete the shared future
+
+        try {
+            executor.execute(() -> runLoad(key, loader, ttlMillis, load));
+        } catch (RuntimeException e) {
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+        }
+        return load.copy();
+    }
+
+    private void refresh(K key, CacheEntry<V> from, Function<K, V> loader, Executor executor) {
+        CompletableFuture<V> reload = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, reload) != null) return; // already loading or refreshing
+
+        try {
+            executor.execute(() -> {
+                try {
+                    V value = timedLoad(() -> loader.apply(key));
+                    replaceIfUnchanged(key, from, value);
+                    reload.complete(value);
+                } catch (Throwable t) {
+                    LOGGER.warning("NotCache refresh failed for key " + key + ": " + t.getMessage());
+                    reload.completeExceptionally(t);
+                } finally {
+                    loading.remove(key, reload);
+                }
+            });
+        } catch (RuntimeException e) {
+            loading.remove(key, reload);
+            reload.completeExceptionally(e);
+        }
+    }
+
+    private void replaceIfUnchanged(K key, CacheEntry<V> from, V value) {
+        Segment<K, V> seg = segmentFor(key);
+        CacheEntry<V> replacement = value != null ? newEntry(key, value, from.getTtlMillis()) : null;
+        synchronized (seg.lock) {
+            // Written, invalidated or evicted while we were loading – keep what is there
+            if (seg.store.get(key) != from || from.isDirty()) return;
+            if (replacement == null) {
+                removeEntry(seg, key, RemovalCause.EXPLICIT);
+            } else {
+                seg.insert(key, replacement);
+                enforceCapacity(seg); // the reloaded value may weigh more than the old one
+            }
+        }
+        notifyRemovals(seg);
+        notifyWrite(key);
+    }
+
+    /** Splits keys into hits, loads this call must run, and loads already in flight elsewhere. */
+    private BulkLoad<K, V> partition(Collection<K> keys) {
+        BulkLoad<K, V> bulk = new BulkLoad<>();
+        for (K key : keys) {
+            if (bulk.found.containsKey(key) || bulk.owned.containsKey(key) || bulk.joined.containsKey(key)) continue;
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                bulk.found.put(key, cached);
+                continue;
+            }
+            CompletableFuture<V> load = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = loading.putIfAbsent(key, load);
+            if (inFlight != null) bulk.joined.put(key, inFlight); else bulk.owned.put(key, load);
+        }
+        return bulk;
+    }
+
+    private void runBulkLoad(Map<K, CompletableFuture<V>> owned, Function<? super Set<K>, Map<K, V>> loader) {
+        try {
+            // Loads that finished between our miss and registering need no query
+            Set<K> missing = new LinkedHashSet<>();
+            for (Map.Entry<K, CompletableFuture<V>> e : owned.entrySet()) {
+                V value = peek(e.getKey());
+                if (value != null) e.getValue().complete(value); else missing.add(e.getKey());
+            }
+            Map<K, V> loaded = missing.isEmpty()
+                    ? Map.of()
+                    : timedLoad(() -> loader.apply(Collections.unmodifiableSet(missing)));
+            for (K key : missing) {
+                V value = loaded.get(key);
+                if (value != null) put(key, value, defaultTtlMillis);
+                owned.get(key).complete(value);
+            }
+        } catch (Throwable t) {
+            owned.values().forEach(load -> load.completeExceptionally(t));
+        } finally {
+            owned.forEach(loading::remove);
+        }
+    }
+
+    private static final class BulkLoad<K, V> {
+        final Map<K, V> found = new HashMap<>();
+        final Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> joined = new LinkedHashMap<>();
+
+        List<Map.Entry<K, CompletableFuture<V>>> pending() {
+            List<Map.Entry<K, CompletableFuture<V>>> pending = new ArrayList<>(owned.entrySet());
+            pending.addAll(joined.entrySet());
+            return pending;
+        }
+
+        Map<K, V> ordered(Collection<K> keys) {
+            Map<K, V> result = new LinkedHashMap<>();
+            for (K key : keys) {
+                V value = found.get(key);
+                if (value != null) result.put(key, value);
+            }
+            return result;
+        }
+    }
+
+    private void runLoad(K key, Function<K, V> loader, long ttlMillis, CompletableFuture<V> load) {
+        try {
+            // Another load may have finished between our miss and registering this one
+            V value = peek(key);
+            if (value == null) {
+                value = timedLoad(() -> loader.apply(key));
+                if (value != null) put(key, value, ttlMillis);
+            }
+            load.complete(value);
+        } catch (Throwable t) {
+            load.completeExceptionally(t);
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /** Runs one loader call (single or bulk) and records its outcome and latency. */
+    private <R> R timedLoad(Supplier<R> loader) {
+        long start = System.nanoTime();
+        try {
+            R result = loader.get();
+            loadSuccesses.increment();
+            return result;
+        } catch (Throwable t) {
+            loadFailures.increment();
+            throw t;
+        } finally {
+            loadLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Reads a live value without touching stats or eviction order. */
+    V peek(K key) {
+        Segment<K, V> seg = segmentFor(key);
+        long now = ticker.read();
+        Object stored;
+        synchronized (seg.lock) {
+            CacheEntry<V> entry = seg.store.get(key);
+            if (entry == null || entry.isExpired(now)) return null;
+            stored = stored(entry);
+        }
+        return materialize(key, stored);
+    }
+
+    private static <V> V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // Surface the loader's own exception rather than the wrapper
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return new Segment[count]; // generic array creation
+    }
+
+    // Spread the remainder so the shares always add up to the capacity exactly
+    private long shareOf(long total, int segment) {
+        return total / segments.length + (segment < total % segments.length ? 1 : 0);
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = Objects.hashCode(key);
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
     // ── STATS ────────────────────────────────────────────────────────────────
 
     public CacheStats getStats() {
-        synchronized (lock) {
-            return new CacheStats(
-                    hits.get(), misses.get(),
-                    evictions.get(), expirations.get(),
-                    store.size(), maxSize
-            );
+        int size = 0;
+        int dirty = 0;
+        long storedBytes = 0;
+        long uncompressedBytes = 0;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) {
+                size += seg.store.size();
+                dirty += seg.dirty.size();
+                storedBytes += seg.storedBytes;
+                uncompressedBytes += seg.uncompressedBytes;
+            }
         }
+        return new CacheStats(
+                hits.sum(), misses.sum(),
+                evictions.sum(), expirations.sum(),
+                admissionRejections.sum(),
+                size, (int) Math.min(Integer.MAX_VALUE, capacity), dirty,
+                storedBytes, uncompressedBytes,
+                decodes.sum(), decodeNanos.sum(), decodedHits.sum(),
+                loadSuccesses.sum(), loadFailures.sum(), loadLatency.snapshot()
+        );
     }
 
     public void resetStats() {
-        hits.set(0); misses.set(0);
-        evictions.set(0); expirations.set(0);
+        hits.reset(); misses.reset();
+        evictions.reset(); expirations.reset();
+        admissionRejections.reset();
+        decodes.reset(); decodeNanos.reset(); decodedHits.reset();
+        loadSuccesses.reset(); loadFailures.reset(); loadLatency.reset();
     }
 
     public int size() {
-        synchronized (lock) { return store.size(); }
+        int size = 0;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) { size += seg.store.size(); }
+        }
+        return size;
+    }
+
+    /**
+     * Total weight of all entries as computed by the weigher; equals
+     * {@link #size()} when the cache has none.
+     */
+    public long weightedSize() {
+        long weight = 0;
+        for (Segment<K, V> seg : segments) {
+            synchronized (seg.lock) { weight += seg.weight; }
+        }
+        return weight;
+    }
+
+    /** Number of independently locked segments (always a power of two). */
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    // ── CAPACITY ─────────────────────────────────────────────────────────────
+
+    /** Current {@code maxSize}, or {@code maximumWeight} when the cache has a weigher. */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Changes {@code maxSize} (or {@code maximumWeight} with a weigher) at
+     * runtime, e.g. from {@link CacheAutoTuner}. Shrinking evicts the
+     * excess immediately through the normal eviction policy; pinned entries
+     * are never evicted. The capacity never drops below one entry per segment.
+     */
+    public void resize(long newCapacity) {
+        long target = Math.max(segments.length, newCapacity);
+        capacity = target;
+        for (int i = 0; i < segments.length; i++) {
+            Segment<K, V> seg = segments[i];
+            synchronized (seg.lock) {
+                seg.capacity = shareOf(target, i);
+                seg.policy.resize(seg.capacity);
+                enforceCapacity(seg);
+            }
+            notifyRemovals(seg);
+        }
     }
 
     // ── LIFECYCLE ────────────────────────────────────────────────────────────
 
+    /** Stops the expiry sweep and removes the JMX bean; the maintenance scheduler itself keeps running. */
     public void shutdown() {
-        scheduler.shutdownNow();
+        if (cleanupTask != null) cleanupTask.cancel();
+        if (metricsBean != null) metricsBean.unregister();
         LOGGER.info("NotCache shut down. Final stats: " + getStats());
     }
 
+    // ── DECODED SLOTS ────────────────────────────────────────────────────────
+
+    // A removal queued under the lock; the value is decoded once the lock is released
+    private record Removed<K>(K key, Object stored, RemovalCause cause, boolean dirty) {}
+
+    /**
+     * Direct-mapped, lock-free front cache of decoded values. A slot only
+     * answers for the exact encoded array it was decoded from; every write
+     * stores a new array, so stale slots need no invalidation.
+     */
+    private static final class DecodedSlots<K, V> {
+        private record Slot<K, V>(K key, byte[] encoded, V value) {}
+
+        private final AtomicReferenceArray<Slot<K, V>> slots;
+        private final int mask;
+
+        DecodedSlots(int size) {
+            int length = Integer.highestOneBit(Math.max(1, size) * 2 - 1);
+            this.slots = new AtomicReferenceArray<>(length);
+            this.mask = length - 1;
+        }
+
+        V get(K key, byte[] encoded) {
+            Slot<K, V> slot = slots.get(index(key));
+            return slot != null && slot.encoded() == encoded && Objects.equals(slot.key(), key) ? slot.value() : null;
+        }
+
+        void put(K key, byte[] encoded, V value) {
+            slots.set(index(key), new Slot<>(key, encoded, value));
+        }
+
+        private int index(K key) {
+            int h = Objects.hashCode(key);
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+    // ── SEGMENT ──────────────────────────────────────────────────────────────
+
+    private static final class Segment<K, V> {
+        // The map only answers lookups; eviction order lives in the policy
+        final HashMap<K, CacheEntry<V>> store = new HashMap<>();
+        // Keys of dirty entries in the order they were first modified
+        final LinkedHashSet<K> dirty = new LinkedHashSet<>();
+        long writeSeq;
+        // Removals waiting to be handed to listeners outside the lock
+        final ArrayList<Removed<K>> pending = new ArrayList<>();
+        final AccessPolicy<V> policy;
+        final TimerWheel<V> wheel;
+        final Object lock = new Object();
+        // Keys whose entries must stay; may be pinned before the entry is loaded
+        final HashSet<K> pinned = new HashSet<>();
+        // Share of maxSize, or of maximumWeight with a weigher; weight is 1 per entry otherwise.
+        // Pinned entries are not counted
+        long capacity;
+        long weight;
+        // Encoded size of every entry, pinned ones included, and what it decodes to; 0 without a codec
+        final ValueCodec<V> codec;
+        long storedBytes;
+        long uncompressedBytes;
+
+        Segment(long capacity, AccessPolicy<V> policy, ValueCodec<V> codec, long now) {
+            this.capacity = capacity;
+            this.policy = policy;
+            this.codec = codec;
+            this.wheel = new TimerWheel<>(now);
+        }
+
+        private void account(CacheEntry<V> entry, int sign) {
+            if (entry.encoded == null) return;
+            storedBytes += sign * (long) entry.encoded.length;
+            uncompressedBytes += sign * (long) codec.uncompressedSize(entry.encoded);
+        }
+
+        /** Swaps the encoded value of an entry updated in place. */
+        void reencode(CacheEntry<V> entry, byte[] encoded) {
+            account(entry, -1);
+            entry.encoded = encoded;
+            account(entry, 1);
+        }
+
+        /** Stores the entry; a replaced entry hands over its place in the policy. */
+        void insert(K key, CacheEntry<V> entry) {
+            entry.key = key;
+            account(entry, 1);
+            if (!pinned.isEmpty() && pinned.contains(key)) {
+                entry.pinned = true;
+                CacheEntry<V> replaced = store.put(key, entry);
+                if (replaced != null) account(replaced, -1);
+                if (entry.isDirty()) dirty.add(key); else dirty.remove(key);
+                return;
+            }
+            CacheEntry<V> existing = store.put(key, entry);
+            weight += entry.weight;
+            if (existing == null) {
+                policy.onInsert(entry);
+            } else {
+                weight -= existing.weight;
+                account(existing, -1);
+                policy.onReplace(existing, entry);
+                wheel.deschedule(existing);
+            }
+            if (entry.getTtlMillis() > 0) wheel.schedule(entry);
+            if (entry.isDirty()) dirty.add(key); else dirty.remove(key);
+        }
+
+        void touchDirty(K key, CacheEntry<V> entry) {
+            entry.version = ++writeSeq;
+            dirty.add(key);
+        }
+
+        /** Drops the weight and bytes of an entry the timer wheel already unlinked. */
+        void release(CacheEntry<V> entry) {
+            weight -= entry.weight;
+            account(entry, -1);
+        }
+
+        CacheEntry<V> remove(K key) {
+            CacheEntry<V> entry = store.remove(key);
+            if (entry != null) account(entry, -1);
+            if (entry != null && entry.pinned) {
+                if (entry.isDirty()) dirty.remove(key);
+            } else if (entry != null) {
+                weight -= entry.weight;
+                policy.onRemove(entry);
+                wheel.deschedule(entry);
+                if (entry.isDirty()) dirty.remove(key);
+            }
+            return entry;
+        }
+
+        void reweigh(CacheEntry<V> entry, int newWeight) {
+            int delta = newWeight - entry.weight;
+            if (delta == 0) return;
+            entry.weight = newWeight;
+            if (entry.pinned) return;
+            weight += delta;
+            policy.onWeightChange(entry, delta);
+        }
+
+        /** Takes the entry out of the policy and wheel; it stays until {@link #unpin}. */
+        void pin(K key) {
+            if (!pinned.add(key)) return;
+            CacheEntry<V> entry = store.get(key);
+            if (entry == null) return;
+            entry.pinned = true;
+            weight -= entry.weight;
+            policy.onRemove(entry);
+            wheel.deschedule(entry);
+        }
+
+        /** Hands the entry back to the policy with a fresh TTL; caller enforces capacity. */
+        void unpin(K key, long now) {
+            if (!pinned.remove(key)) return;
+            CacheEntry<V> entry = store.get(key);
+            if (entry == null) return;
+            entry.pinned = false;
+            entry.restartTtl(now);
+            weight += entry.weight;
+            policy.onInsert(entry);
+            if (entry.getTtlMillis() > 0) wheel.schedule(entry);
+        }
+
+        void clear() {
+            weight = 0;
+            storedBytes = 0;
+            uncompressedBytes = 0;
+            store.clear();
+            dirty.clear();
+            policy.clear();
+            wheel.clear();
+        }
+    }
+
     // ── BUILDER ──────────────────────────────────────────────────────────────
 
     public static <K, V> Builder<K, V> builder() {
@@ -271,6 +1226,16 @@ public class NotCache<K, V> {
         private long ttlMillis = 5 * 60 * 1000L; // 5 minutes default
         private CacheEvictionPolicy evictionPolicy = CacheEvictionPolicy.LRU;
         private long cleanupIntervalMillis = 60_000L; // cleanup every minute
+        private long cleanupJitterMillis = -1L; // default: 10% of the interval
+        private MaintenanceScheduler maintenance = MaintenanceScheduler.shared();
+        private int concurrencyLevel = 1;
+        private Ticker ticker = Ticker.system();
+        private final List<RemovalListener<K, V>> removalListeners = new ArrayList<>();
+        private BiFunction<? super K, ? super V, Integer> weigher;
+        private long maximumWeight;
+        private ValueCodec<V> valueCodec;
+        private int decodedCacheSize = 256;
+        private String jmxName;
 
         public Builder<K, V> maxSize(int maxSize) {
             this.maxSize = maxSize;
@@ -300,7 +1265,128 @@ public class NotCache<K, V> {
             return this;
         }
 
+        /**
+         * Random variation applied to each cleanup delay so caches created
+         * together do not sweep in lockstep. Defaults to 10% of the interval.
+         */
+        public Builder<K, V> cleanupJitterMillis(long ms) {
+            this.cleanupJitterMillis = ms;
+            return this;
+        }
+
+        /**
+         * Scheduler that runs the expiry sweep. Defaults to
+         * {@link MaintenanceScheduler#shared()}, so any number of caches share
+         * one thread.
+         */
+        public Builder<K, V> maintenance(MaintenanceScheduler maintenance) {
+            this.maintenance = Objects.requireNonNull(maintenance, "maintenance");
+            return this;
+        }
+
+        /**
+         * Splits the cache into this many independently locked segments
+         * (rounded up to a power of two). Each segment keeps its own LRU/FIFO
+         * order over an equal share of {@link #maxSize(int)}, so eviction is
+         * approximate across the whole cache but reads on different keys no
+         * longer contend on one monitor. Defaults to 1 (a single global order).
+         * <pre>{@code
+         * .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+         * }</pre>
+         */
+        public Builder<K, V> concurrencyLevel(int segments) {
+            this.concurrencyLevel = segments;
+            return this;
+        }
+
+        /**
+         * Time source for TTLs and access timestamps. Defaults to
+         * {@link Ticker#system()}; override with a fake ticker in tests.
+         */
+        public Builder<K, V> ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * Called for every entry evicted for size, expired or invalidated,
+         * with a {@link RemovalCause} and whether it was still dirty.
+         * May be called more than once to register several listeners.
+         */
+        public Builder<K, V> removalListener(RemovalListener<K, V> listener) {
+            this.removalListeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Bounds the cache by total weight instead of entry count. Each entry
+         * weighs {@code weigher.apply(key, value)} units (e.g. estimated bytes,
+         * see {@link EntityWeigher}), computed on put and on every update.
+         * Requires {@link #maximumWeight(long)}; {@link #maxSize(int)} is then
+         * only a hint of the expected entry count for W-TinyLFU.
+         * <pre>{@code
+         * .weigher(EntityWeigher.of(PlayerProfile.class))
+         * .maximumWeight(16 * 1024 * 1024) // ~16 MB
+         * }</pre>
+         */
+        public Builder<K, V> weigher(BiFunction<? super K, ? super V, Integer> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * Stores every value in encoded form, e.g. deflated, and decodes it
+         * on each read. Suits large, mostly idle values such as serialised
+         * inventories or quest state. {@link CacheStats#compressionRatio()}
+         * and {@link CacheStats#avgDecodeMicros()} show what it costs.
+         * <pre>{@code
+         * .valueCodec(ValueCodec.deflate(ValueCodec.utf8()))
+         * }</pre>
+         * Reads return a fresh copy unless it comes from the decoded slots
+         * (see {@link #decodedCacheSize(int)}), so changes to a returned value
+         * only reach the cache through {@link NotCache#put} or {@link NotCache#update}.
+         */
+        public Builder<K, V> valueCodec(ValueCodec<V> codec) {
+            this.valueCodec = codec;
+            return this;
+        }
+
+        /**
+         * Number of slots of the decoded-value front cache used with a
+         * {@link #valueCodec(ValueCodec)} (default 256, rounded up to a power
+         * of two; 0 disables). Hot keys are then decoded once per write
+         * rather than once per read.
+         */
+        public Builder<K, V> decodedCacheSize(int slots) {
+            this.decodedCacheSize = Math.max(0, slots);
+            return this;
+        }
+
+        /**
+         * Exports this cache's metrics as a {@link NotCacheMXBean} named
+         * {@code dev.notmarra.notlib:type=Cache,name=<name>} until
+         * {@link NotCache#shutdown()}. Not needed for a cache handed to a
+         * {@link CachedRepository}; give the repository the name instead, so
+         * its flush metrics are included.
+         */
+        public Builder<K, V> jmxName(String name) {
+            this.jmxName = name;
+            return this;
+        }
+
+        /** Maximum total weight across all entries; only used with a {@link #weigher(BiFunction)}. */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
         public NotCache<K, V> build() {
+            if (weigher != null && maximumWeight <= 0) {
+                throw new IllegalArgumentException("weigher requires a positive maximumWeight");
+            }
+            if (weigher == null && maximumWeight > 0) {
+                throw new IllegalArgumentException("maximumWeight requires a weigher");
+            }
             return new NotCache<>(this);
         }
     }
@@ -0,0 +1,60 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * JMX view of one named cache, registered as
+ * {@code dev.notmarra.notlib:type=Cache,name=<name>} by
+ * {@link NotCache.Builder#jmxName(String)} or
+ * {@link CachedRepository.Builder#jmxName(String)}. Readable from JConsole,
+ * VisualVM or any JMX exporter.
+ *
+ * Attributes come from one {@link CacheStats} / {@link FlushStats} snapshot
+ * taken at most once a second, so polling every attribute does not sweep the
+ * cache segments each time. Flush attributes stay 0 for a bare cache.
+ */
+public interface NotCacheMXBean {
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRate();
+
+    long getEvictions();
+
+    long getExpirations();
+
+    long getAdmissionRejections();
+
+    int getSize();
+
+    long getCapacity();
+
+    long getLoadSuccesses();
+
+    long getLoadFailures();
+
+    double getLoadMeanMillis();
+
+    double getLoadP50Millis();
+
+    double getLoadP99Millis();
+
+    double getLoadMaxMillis();
+
+    /** Dirty entries not yet written, including evicted ones queued for the database. */
+    int getDirtyBacklog();
+
+    long getFlushes();
+
+    long getRowsWritten();
+
+    long getRowsFailed();
+
+    double getFlushP50Millis();
+
+    double getFlushP99Millis();
+
+    double getFlushMaxMillis();
+
+    void resetStats();
+}
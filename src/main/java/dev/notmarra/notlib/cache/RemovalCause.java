@@ -0,0 +1,24 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Why an entry left a {@link NotCache}; reported to {@link RemovalListener}s.
+ */
+public enum RemovalCause {
+
+    /**
+     * Evicted by the eviction policy because its segment was over capacity.
+     */
+    SIZE,
+
+    /**
+     * Dropped because its TTL elapsed, either by the cleanup sweep or when a
+     * read found it expired.
+     */
+    EXPIRED,
+
+    /**
+     * Removed on request via {@code invalidate}, {@code invalidateAll}, or a
+     * refresh that found the row deleted.
+     */
+    EXPLICIT
+}
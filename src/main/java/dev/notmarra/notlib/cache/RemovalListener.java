@@ -0,0 +1,14 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Receives entries removed from a {@link NotCache}.
+ *
+ * Listeners run on the thread that caused the removal, after the segment lock
+ * has been released, so they may safely call back into the cache. Keep them
+ * short – hand slow work such as database writes to an executor. Exceptions
+ * are logged and swallowed.
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    void onRemoval(RemovalNotification<K, V> notification);
+}
@@ -0,0 +1,12 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * An entry that was removed from a {@link NotCache}.
+ *
+ * @param key   the removed key
+ * @param value the value it held
+ * @param cause why it was removed
+ * @param dirty whether it still had unpersisted changes
+ */
+public record RemovalNotification<K, V>(K key, V value, RemovalCause cause, boolean dirty) {
+}
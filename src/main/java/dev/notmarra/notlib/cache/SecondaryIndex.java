@@ -0,0 +1,136 @@
+package dev.notmarra.notlib.cache;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index from one non-key column of the cached entities to their
+ * primary keys. Owned by {@link CachedRepository}, which re-syncs a key from
+ * its {@link NotCache} after every write and removal.
+ *
+ * A hash index answers equality lookups in O(1); a sorted index keeps its
+ * values in a skip list and also answers range lookups in O(log n + matches).
+ * {@code null} column values are not indexed, just as {@code col = ?} never
+ * matches NULL in SQL.
+ *
+ * Only cached entities are indexed, and a key may still be listed for a moment
+ * after its entry left the cache – callers read every match back from the
+ * cache and re-check it with {@link #matches(Object, Object)}.
+ */
+final class SecondaryIndex<K> {
+    private final String column;
+    private final Field field;
+    private final boolean unique;
+    // Column value each key is currently filed under
+    private final ConcurrentHashMap<K, Object> values = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Set<K>> keys;
+
+    SecondaryIndex(String column, Field field, boolean unique, boolean sorted) {
+        if (sorted && !field.getType().isPrimitive() && !Comparable.class.isAssignableFrom(field.getType())) {
+            throw new IllegalArgumentException("Sorted index on " + column + " needs a Comparable field, not "
+                    + field.getType().getName());
+        }
+        this.column = column;
+        this.field = field;
+        this.unique = unique;
+        this.keys = sorted ? new ConcurrentSkipListMap<>() : new ConcurrentHashMap<>();
+        field.setAccessible(true);
+    }
+
+    String column()  { return column; }
+    boolean unique() { return unique; }
+    boolean sorted() { return keys instanceof ConcurrentNavigableMap; }
+    int size()       { return values.size(); }
+
+    /**
+     * Re-reads {@code key} from {@code cache} and files it under its current
+     * column value, or drops it if it is no longer cached. Runs under the
+     * key's bin lock, so the last sync after a write always wins.
+     */
+    <V> void sync(K key, NotCache<K, V> cache) {
+        values.compute(key, (k, old) -> {
+            V entity = cache.peek(k);
+            Object value = entity == null ? null : valueOf(entity);
+            if (Objects.equals(old, value)) return old;
+            if (old != null) unlink(k, old);
+            if (value != null) link(k, value);
+            return value;
+        });
+    }
+
+    void clear() {
+        values.clear();
+        keys.clear();
+    }
+
+    /** Keys filed under {@code value}; a snapshot, possibly including just-evicted keys. */
+    List<K> get(Object value) {
+        Set<K> bucket = keys.get(value);
+        return bucket == null ? List.of() : new ArrayList<>(bucket);
+    }
+
+    /**
+     * Keys whose value lies between the bounds, in ascending value order.
+     * A {@code null} bound is open.
+     */
+    @SuppressWarnings("unchecked")
+    List<K> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        ConcurrentNavigableMap<Object, Set<K>> sorted = (ConcurrentNavigableMap<Object, Set<K>>) keys;
+        if (from != null && to != null) sorted = sorted.subMap(from, fromInclusive, to, toInclusive);
+        else if (from != null) sorted = sorted.tailMap(from, fromInclusive);
+        else if (to != null) sorted = sorted.headMap(to, toInclusive);
+        List<K> result = new ArrayList<>();
+        for (Collection<K> bucket : sorted.values()) result.addAll(bucket);
+        return result;
+    }
+
+    boolean matches(Object entity, Object value) {
+        return Objects.equals(valueOf(entity), value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    boolean inRange(Object entity, Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        Comparable value = (Comparable) valueOf(entity);
+        if (value == null) return false;
+        if (from != null) {
+            int c = value.compareTo(from);
+            if (c < 0 || (c == 0 && !fromInclusive)) return false;
+        }
+        if (to != null) {
+            int c = value.compareTo(to);
+            if (c > 0 || (c == 0 && !toInclusive)) return false;
+        }
+        return true;
+    }
+
+    Object valueOf(Object entity) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot read " + column + " from " + entity.getClass().getName(), e);
+        }
+    }
+
+    private void link(K key, Object value) {
+        keys.compute(value, (v, bucket) -> {
+            if (bucket == null) bucket = ConcurrentHashMap.newKeySet();
+            bucket.add(key);
+            return bucket;
+        });
+    }
+
+    private void unlink(K key, Object value) {
+        keys.computeIfPresent(value, (v, bucket) -> {
+            bucket.remove(key);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Immutable snapshot of player-session metrics for a {@link CachedRepository}.
+ *
+ * @param openSessions      sessions currently pinned in the cache
+ * @param preloads          sessions opened so far
+ * @param released          sessions flushed and unpinned after a quit
+ * @param lastPreloadMillis time the most recent join preload took
+ * @param avgPreloadMillis  mean join preload time
+ * @param maxPreloadMillis  slowest join preload so far
+ */
+public record SessionStats(
+        int openSessions,
+        long preloads,
+        long released,
+        double lastPreloadMillis,
+        double avgPreloadMillis,
+        double maxPreloadMillis
+) {
+    @Override
+    public String toString() {
+        return String.format(
+                "SessionStats{open=%d, preloads=%d, released=%d, preload last=%.2fms avg=%.2fms max=%.2fms}",
+                openSessions, preloads, released, lastPreloadMillis, avgPreloadMillis, maxPreloadMillis
+        );
+    }
+}
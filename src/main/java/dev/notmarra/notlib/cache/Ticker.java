@@ -0,0 +1,26 @@
+package dev.notmarra.notlib.cache;
+
+/**
+ * Monotonic time source for {@link NotCache}, in nanoseconds with an arbitrary
+ * origin (like {@link System#nanoTime()}). The cache reads it once per
+ * operation and stores the result as a primitive, so the hit path never
+ * allocates a timestamp.
+ *
+ * <pre>{@code
+ * // Deterministic time in tests
+ * AtomicLong now = new AtomicLong();
+ * NotCache<UUID, PlayerProfile> cache = NotCache.<UUID, PlayerProfile>builder()
+ *         .ticker(now::get)
+ *         .build();
+ * }</pre>
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    long read();
+
+    /** The default ticker backed by {@link System#nanoTime()}. */
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
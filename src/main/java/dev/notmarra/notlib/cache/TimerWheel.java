@@ -0,0 +1,152 @@
+package dev.notmarra.notlib.cache;
+
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical timing wheel that orders entries by their expiry deadline so
+ * {@link NotCache#evictExpired()} only touches entries that are due, instead of
+ * scanning the whole segment.
+ *
+ * <p>Five wheels of doubly-linked buckets cover increasingly coarse time
+ * spans (~1 s, ~1 min, ~1 h, ~1.6 d, ~6.5 d). An entry is placed in the
+ * finest wheel whose span still covers its remaining lifetime. When time
+ * advances, the buckets that were passed are emptied: entries whose deadline
+ * has arrived are expired, the rest cascade down to a finer wheel. A bucket
+ * therefore holds entries due within one of its ticks, and advancing costs
+ * O(expired + buckets passed) rather than O(size).
+ *
+ * Deadlines use {@link System#nanoTime()} and are compared by difference, so
+ * the wheel is immune to wall-clock jumps. Not thread-safe – always used under
+ * the owning segment's lock.
+ */
+final class TimerWheel<V> {
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            1L << 30, // 1.07 s
+            1L << 36, // 1.14 min
+            1L << 42, // 1.22 h
+            1L << 47, // 1.63 d
+            1L << 49, // 6.5 d
+            1L << 49, // 6.5 d
+    };
+    private static final int[] SHIFT = {30, 36, 42, 47, 49};
+
+    private final CacheEntry<V>[][] wheel;
+    private long nanos;
+
+    TimerWheel(long nowNanos) {
+        this.nanos = nowNanos;
+        this.wheel = newWheel();
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = newBuckets(BUCKETS[i]);
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                CacheEntry<V> sentinel = new CacheEntry<>(null, 0);
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> CacheEntry<V>[][] newWheel() {
+        return new CacheEntry[BUCKETS.length][]; // generic array creation
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> CacheEntry<V>[] newBuckets(int size) {
+        return new CacheEntry[size];
+    }
+
+    /** Adds the entry to the bucket matching its deadline. */
+    void schedule(CacheEntry<V> e) {
+        CacheEntry<V> sentinel = findBucket(e.expiresAt);
+        e.timerPrev = sentinel.timerPrev;
+        e.timerNext = sentinel;
+        sentinel.timerPrev.timerNext = e;
+        sentinel.timerPrev = e;
+    }
+
+    /** Unlinks the entry if it is scheduled; a no-op for immortal entries. */
+    void deschedule(CacheEntry<V> e) {
+        if (e.timerNext == null) return;
+        e.timerPrev.timerNext = e.timerNext;
+        e.timerNext.timerPrev = e.timerPrev;
+        e.timerPrev = null;
+        e.timerNext = null;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowNanos}, handing every entry whose
+     * deadline has passed to {@code expire}. If {@code expire} returns
+     * {@code false} the entry is kept and rescheduled.
+     */
+    void advance(long nowNanos, Predicate<CacheEntry<V>> expire) {
+        long previous = nanos;
+        nanos = nowNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = nowNanos >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0L) break;
+            expire(i, previousTicks, delta, expire);
+        }
+    }
+
+    /** Unlinks every bucket; used when the segment is cleared. */
+    void clear() {
+        for (CacheEntry<V>[] buckets : wheel) {
+            for (CacheEntry<V> sentinel : buckets) {
+                CacheEntry<V> node = sentinel.timerNext;
+                while (node != sentinel) {
+                    CacheEntry<V> next = node.timerNext;
+                    node.timerPrev = null;
+                    node.timerNext = null;
+                    node = next;
+                }
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+            }
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Predicate<CacheEntry<V>> expire) {
+        CacheEntry<V>[] buckets = wheel[index];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            CacheEntry<V> sentinel = buckets[i & mask];
+            CacheEntry<V> node = sentinel.timerNext;
+            sentinel.timerPrev = sentinel;
+            sentinel.timerNext = sentinel;
+
+            while (node != sentinel) {
+                CacheEntry<V> next = node.timerNext;
+                node.timerPrev = null;
+                node.timerNext = null;
+                if (node.expiresAt - nanos >= 0 || !expire.test(node)) {
+                    schedule(node); // not due yet – cascade into a finer bucket
+                }
+                node = next;
+            }
+        }
+    }
+
+    private CacheEntry<V> findBucket(long deadline) {
+        long duration = deadline - nanos;
+        if (duration < 0) {
+            // Already due: the current bucket is the first one the next advance drains
+            deadline = nanos;
+            duration = 0;
+        }
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = deadline >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+}
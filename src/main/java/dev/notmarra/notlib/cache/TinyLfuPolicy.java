@@ -0,0 +1,156 @@
+package dev.notmarra.notlib.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * W-TinyLFU: a small LRU "window" in front of a segmented LRU main space,
+ * guarded by a {@link FrequencySketch} admission filter.
+ *
+ * <ul>
+ *   <li>New entries land in the window (~1% of capacity), so short bursts of
+ *       recency still get a chance to prove themselves.</li>
+ *   <li>Entries falling out of the window become <em>candidates</em> for the
+ *       main space. When the segment is full, a candidate is only admitted if
+ *       the sketch says it is requested more often than the main space's LRU
+ *       victim; otherwise the candidate itself is dropped (an admission
+ *       rejection).</li>
+ *   <li>The main space is split into probation (~20%) and protected (~80%).
+ *       A hit in probation promotes the entry to protected; protected overflow
+ *       is demoted back to probation instead of being evicted outright.</li>
+ * </ul>
+ *
+ * A scan of one-off keys therefore only churns the window and probation,
+ * while the frequently used entries in protected stay resident.
+ *
+ * Region sizes are measured in entry weight, so with a weigher the window and
+ * protected limits are shares of the segment's maximum weight.
+ */
+final class TinyLfuPolicy<V> extends AccessPolicy<V> {
+    private static final byte WINDOW    = 1;
+    private static final byte PROBATION = 2;
+    private static final byte PROTECTED = 3;
+
+    private final EntryDeque<V> window    = new EntryDeque<>();
+    private final EntryDeque<V> probation = new EntryDeque<>();
+    private final EntryDeque<V> protect   = new EntryDeque<>();
+    private final FrequencySketch sketch;
+    private final LongAdder admissionRejections;
+
+    private long windowMax;
+    private long protectedMax;
+
+    // Last entry moved out of the window, waiting for an admission decision
+    private CacheEntry<V> candidate;
+
+    TinyLfuPolicy(long capacity, int expectedSize, LongAdder admissionRejections) {
+        resize(capacity);
+        this.sketch = new FrequencySketch(expectedSize);
+        this.admissionRejections = admissionRejections;
+    }
+
+    // The regions rebalance on the next insert or hit; the sketch keeps its original size
+    @Override
+    void resize(long capacity) {
+        long max = Math.max(1, capacity);
+        this.windowMax = Math.max(1, max / 100);
+        this.protectedMax = (long) ((max - windowMax) * 0.8);
+    }
+
+    @Override
+    void onInsert(CacheEntry<V> e) {
+        sketch.increment(e.key);
+        e.queue = WINDOW;
+        window.addLast(e);
+        // Keep at least the newest entry in the window, however heavy it is
+        while (window.weight() > windowMax && window.size() > 1) {
+            CacheEntry<V> overflow = window.pollFirst();
+            overflow.queue = PROBATION;
+            probation.addLast(overflow);
+            candidate = overflow;
+        }
+    }
+
+    @Override
+    void onAccess(CacheEntry<V> e) {
+        sketch.increment(e.key);
+        switch (e.queue) {
+            case WINDOW -> window.moveToLast(e);
+            case PROTECTED -> protect.moveToLast(e);
+            case PROBATION -> {
+                if (e == candidate) candidate = null; // proved itself before the decision
+                probation.remove(e);
+                e.queue = PROTECTED;
+                protect.addLast(e);
+                demoteProtectedOverflow();
+            }
+            default -> { }
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protect.weight() > protectedMax && protect.size() > 1) {
+            CacheEntry<V> demoted = protect.pollFirst();
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    @Override
+    void onMiss(Object key) {
+        sketch.increment(key);
+    }
+
+    @Override
+    void onReplace(CacheEntry<V> existing, CacheEntry<V> replacement) {
+        queueOf(existing).replace(existing, replacement);
+        if (existing == candidate) candidate = replacement;
+        onAccess(replacement);
+        if (replacement.queue == PROTECTED) demoteProtectedOverflow(); // may be heavier now
+    }
+
+    @Override
+    void onRemove(CacheEntry<V> e) {
+        if (e == candidate) candidate = null;
+        queueOf(e).remove(e);
+    }
+
+    @Override
+    void onWeightChange(CacheEntry<V> e, int delta) {
+        queueOf(e).adjustWeight(delta);
+        if (e.queue == PROTECTED) demoteProtectedOverflow();
+    }
+
+    @Override
+    CacheEntry<V> victim() {
+        CacheEntry<V> victim = probation.peekFirst();
+        CacheEntry<V> pending = candidate;
+        candidate = null;
+
+        if (pending != null && victim != null && pending != victim) {
+            if (sketch.frequency(pending.key) > sketch.frequency(victim.key)) {
+                return victim;
+            }
+            admissionRejections.increment();
+            return pending;
+        }
+        if (victim != null) return victim;
+        if (!protect.isEmpty()) return protect.peekFirst();
+        return window.peekFirst();
+    }
+
+    @Override
+    void clear() {
+        window.clear();
+        probation.clear();
+        protect.clear();
+        candidate = null;
+    }
+
+    private EntryDeque<V> queueOf(CacheEntry<V> e) {
+        return switch (e.queue) {
+            case WINDOW -> window;
+            case PROTECTED -> protect;
+            default -> probation;
+        };
+    }
+}
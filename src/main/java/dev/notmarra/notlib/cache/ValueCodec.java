@@ -0,0 +1,109 @@
+package dev.notmarra.notlib.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Turns cached values into bytes and back, so a {@link NotCache} built with
+ * {@link NotCache.Builder#valueCodec(ValueCodec)} keeps large values in a
+ * compact form and only materialises them on access.
+ *
+ * <pre>{@code
+ * // Large String blobs, deflated
+ * NotCache<UUID, String> inventories = NotCache.<UUID, String>builder()
+ *         .valueCodec(ValueCodec.deflate(ValueCodec.utf8()))
+ *         .build();
+ *
+ * // Whole entities, column by column, deflated
+ * ValueCodec<QuestState> codec = ValueCodec.deflate(new EntityCodec<>(table));
+ * }</pre>
+ *
+ * Implementations must be thread-safe, and {@code decode(encode(v))} must
+ * return an equal but independent value.
+ */
+public interface ValueCodec<V> {
+
+    byte[] encode(V value);
+
+    V decode(byte[] bytes);
+
+    /**
+     * Size of the value before compression, used for
+     * {@link CacheStats#compressionRatio()}. Codecs that do not compress
+     * return {@code encoded.length} (the default).
+     */
+    default int uncompressedSize(byte[] encoded) {
+        return encoded.length;
+    }
+
+    /** UTF-8 encoding of strings; usually wrapped in {@link #deflate(ValueCodec)}. */
+    static ValueCodec<String> utf8() {
+        return new ValueCodec<>() {
+            @Override public byte[] encode(String value) { return value.getBytes(StandardCharsets.UTF_8); }
+            @Override public String decode(byte[] bytes) { return new String(bytes, StandardCharsets.UTF_8); }
+        };
+    }
+
+    /** {@link #deflate(ValueCodec, int)} at {@link Deflater#BEST_SPEED}, which suits caches best. */
+    static <V> ValueCodec<V> deflate(ValueCodec<V> inner) {
+        return deflate(inner, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * Compresses the bytes of {@code inner} with the JDK {@link Deflater}.
+     * The uncompressed length is stored in a 4-byte header, so inflating
+     * needs exactly one output allocation.
+     */
+    static <V> ValueCodec<V> deflate(ValueCodec<V> inner, int level) {
+        return new ValueCodec<>() {
+            @Override
+            public byte[] encode(V value) {
+                byte[] raw = inner.encode(value);
+                Deflater deflater = new Deflater(level, true);
+                try {
+                    deflater.setInput(raw);
+                    deflater.finish();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+                    out.writeBytes(ByteBuffer.allocate(4).putInt(raw.length).array());
+                    byte[] chunk = new byte[Math.min(8192, raw.length + 64)];
+                    while (!deflater.finished()) {
+                        out.write(chunk, 0, deflater.deflate(chunk));
+                    }
+                    return out.toByteArray();
+                } finally {
+                    deflater.end();
+                }
+            }
+
+            @Override
+            public V decode(byte[] bytes) {
+                byte[] raw = new byte[uncompressedSize(bytes)];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(bytes, 4, bytes.length - 4);
+                    int n = 0;
+                    while (n < raw.length && !inflater.finished()) {
+                        int read = inflater.inflate(raw, n, raw.length - n);
+                        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                        n += read;
+                    }
+                    if (n != raw.length) throw new IllegalStateException("Corrupt deflated value: " + n + " of " + raw.length + " bytes");
+                } catch (DataFormatException e) {
+                    throw new IllegalStateException("Corrupt deflated value", e);
+                } finally {
+                    inflater.end();
+                }
+                return inner.decode(raw);
+            }
+
+            @Override
+            public int uncompressedSize(byte[] encoded) {
+                return ByteBuffer.wrap(encoded, 0, 4).getInt();
+            }
+        };
+    }
+}
@@ -1,7 +1,9 @@
 package dev.notmarra.notlib.database;
 
+import dev.notmarra.notlib.cache.CacheAutoTuner;
 import dev.notmarra.notlib.cache.CacheEvictionPolicy;
 import dev.notmarra.notlib.cache.CachedRepository;
+import dev.notmarra.notlib.cache.MaintenanceScheduler;
 import dev.notmarra.notlib.cache.NotCache;
 import dev.notmarra.notlib.cache.WriteStrategy;
 import dev.notmarra.notlib.database.repository.EntityRepository;
@@ -33,6 +35,7 @@ import java.util.logging.Logger;
  *         .defaultWriteStrategy(WriteStrategy.WRITE_BEHIND)
  *         .defaultFlushIntervalSeconds(20)
  *         .defaultCacheMaxSize(2000)
+ *         .autoTuneCaches(500, 20_000) // let the size follow hit rate and heap
  *         .defaultTtlMinutes(15)
  *         .build();
  *
@@ -62,10 +65,18 @@ public class DatabaseManager {
 
     private final WriteStrategy defaultWriteStrategy;
     private final long defaultFlushIntervalMillis;
+    private final long defaultFlushJitterMillis;
     private final int defaultCacheMaxSize;
     private final long defaultTtlMillis;
     private final CacheEvictionPolicy defaultEvictionPolicy;
     private final Executor defaultExecutor;
+    private final MaintenanceScheduler maintenance;
+    // Resizes the default caches; null unless autoTuneCaches() was set
+    private final CacheAutoTuner autoTuner;
+    // Warm-restart snapshots go here; null when disabled
+    private final File snapshotDirectory;
+    private final boolean snapshotValues;
+    private final boolean exportCacheMetrics;
 
     // ── CONSTRUCTOR ──────────────────────────────────────────────────────────
 
@@ -73,10 +84,18 @@ public class DatabaseManager {
         this.database                   = b.database;
         this.defaultWriteStrategy       = b.defaultWriteStrategy;
         this.defaultFlushIntervalMillis = b.defaultFlushIntervalMillis;
+        this.defaultFlushJitterMillis   = b.defaultFlushJitterMillis;
         this.defaultCacheMaxSize        = b.defaultCacheMaxSize;
         this.defaultTtlMillis           = b.defaultTtlMillis;
         this.defaultEvictionPolicy      = b.defaultEvictionPolicy;
         this.defaultExecutor            = b.defaultExecutor;
+        this.maintenance                = b.maintenance;
+        this.snapshotDirectory          = b.snapshotDirectory;
+        this.snapshotValues             = b.snapshotValues;
+        this.exportCacheMetrics         = b.exportCacheMetrics;
+        this.autoTuner = b.autoTuneMax > 0
+                ? CacheAutoTuner.builder().bounds(b.autoTuneMin, b.autoTuneMax).maintenance(maintenance).build()
+                : null;
     }
 
     // ── REGISTER ─────────────────────────────────────────────────────────────
@@ -86,14 +105,17 @@ public class DatabaseManager {
      * manager's default cache configuration.
      */
     public <K, V> CachedRepository<K, V> registerCached(Class<V> entityClass) {
-        return registerCached(entityClass, defaultWriteStrategy, buildDefaultCache());
+        return registerCached(entityClass, defaultWriteStrategy);
     }
 
     /**
      * Register with a custom {@link WriteStrategy} but default cache settings.
      */
     public <K, V> CachedRepository<K, V> registerCached(Class<V> entityClass, WriteStrategy strategy) {
-        return registerCached(entityClass, strategy, buildDefaultCache());
+        NotCache<K, V> cache = buildDefaultCache();
+        CachedRepository<K, V> repo = registerCached(entityClass, strategy, cache);
+        if (autoTuner != null) autoTuner.tune(entityClass.getSimpleName(), cache);
+        return repo;
     }
 
     /**
@@ -105,12 +127,18 @@ public class DatabaseManager {
             WriteStrategy strategy,
             NotCache<K, V> cache
     ) {
-        CachedRepository<K, V> repo = CachedRepository.<K, V>builder(database, entityClass)
+        CachedRepository.Builder<K, V> builder = CachedRepository.<K, V>builder(database, entityClass)
                 .writeStrategy(strategy)
                 .flushIntervalMillis(defaultFlushIntervalMillis)
+                .flushJitterMillis(defaultFlushJitterMillis)
+                .maintenance(maintenance)
                 .cache(cache)
-                .executor(defaultExecutor)
-                .build();
+                .executor(defaultExecutor);
+        if (snapshotDirectory != null) {
+            builder.snapshot(new File(snapshotDirectory, entityClass.getSimpleName() + ".snapshot").toPath(), snapshotValues);
+        }
+        if (exportCacheMetrics) builder.jmxName(entityClass.getSimpleName());
+        CachedRepository<K, V> repo = builder.build();
         repo.createTable();
         cachedRepos.put(entityClass, repo);
         LOGGER.info("[DatabaseManager] Registered cached repo: " + entityClass.getSimpleName()
@@ -165,6 +193,14 @@ public class DatabaseManager {
     /** Direct access to the underlying {@link Database} for custom queries. */
     public Database getDatabase() { return database; }
 
+    /**
+     * The tuner resizing the default caches, or {@code null} without
+     * {@link Builder#autoTuneCaches(int, int)}. Caches passed to
+     * {@link #registerCached(Class, WriteStrategy, NotCache)} can be added
+     * with {@code tune(name, cache, min, max)}.
+     */
+    public CacheAutoTuner getCacheAutoTuner() { return autoTuner; }
+
     // ── LIFECYCLE ────────────────────────────────────────────────────────────
 
     /**
@@ -173,6 +209,7 @@ public class DatabaseManager {
      */
     public void close() {
         LOGGER.info("[DatabaseManager] Shutting down...");
+        if (autoTuner != null) autoTuner.close();
         cachedRepos.values().forEach(CachedRepository::close);
         database.close();
         LOGGER.info("[DatabaseManager] Closed.");
@@ -185,6 +222,7 @@ public class DatabaseManager {
                 .maxSize(defaultCacheMaxSize)
                 .ttlMillis(defaultTtlMillis)
                 .evictionPolicy(defaultEvictionPolicy)
+                .maintenance(maintenance)
                 .build();
     }
 
@@ -211,10 +249,17 @@ public class DatabaseManager {
         private final Database database;
         private WriteStrategy defaultWriteStrategy        = WriteStrategy.WRITE_THROUGH;
         private long defaultFlushIntervalMillis           = 30_000L;
+        private long defaultFlushJitterMillis             = -1L;
         private int defaultCacheMaxSize                   = 500;
         private long defaultTtlMillis                     = 10 * 60 * 1000L;
         private CacheEvictionPolicy defaultEvictionPolicy = CacheEvictionPolicy.LRU;
         private Executor defaultExecutor                  = ForkJoinPool.commonPool();
+        private MaintenanceScheduler maintenance          = MaintenanceScheduler.shared();
+        private int autoTuneMin;
+        private int autoTuneMax;
+        private File snapshotDirectory;
+        private boolean snapshotValues;
+        private boolean exportCacheMetrics;
 
         private Builder(Database database) {
             this.database = database;
@@ -225,10 +270,17 @@ public class DatabaseManager {
             this.database                   = other.database;
             this.defaultWriteStrategy       = other.defaultWriteStrategy;
             this.defaultFlushIntervalMillis = other.defaultFlushIntervalMillis;
+            this.defaultFlushJitterMillis   = other.defaultFlushJitterMillis;
             this.defaultCacheMaxSize        = other.defaultCacheMaxSize;
             this.defaultTtlMillis           = other.defaultTtlMillis;
             this.defaultEvictionPolicy      = other.defaultEvictionPolicy;
             this.defaultExecutor            = other.defaultExecutor;
+            this.maintenance                = other.maintenance;
+            this.autoTuneMin                = other.autoTuneMin;
+            this.autoTuneMax                = other.autoTuneMax;
+            this.snapshotDirectory          = other.snapshotDirectory;
+            this.snapshotValues             = other.snapshotValues;
+            this.exportCacheMetrics         = other.exportCacheMetrics;
         }
 
         public Builder defaultWriteStrategy(WriteStrategy strategy) {
@@ -239,10 +291,61 @@ public class DatabaseManager {
             this.defaultFlushIntervalMillis = seconds * 1000L; return this;
         }
 
+        /**
+         * Random variation applied to each repository's flush delay so they
+         * do not all flush in the same second. Defaults to 10% of the interval.
+         */
+        public Builder defaultFlushJitterSeconds(long seconds) {
+            this.defaultFlushJitterMillis = seconds * 1000L; return this;
+        }
+
         public Builder defaultCacheMaxSize(int size) {
             this.defaultCacheMaxSize = size; return this;
         }
 
+        /**
+         * Lets a {@link CacheAutoTuner} resize every default cache between
+         * {@code minSize} and {@code maxSize} from its hit rate and heap
+         * usage. {@link #defaultCacheMaxSize(int)} then only sets the
+         * starting size. Every resize is logged.
+         */
+        public Builder autoTuneCaches(int minSize, int maxSize) {
+            if (minSize < 1 || maxSize < minSize) {
+                throw new IllegalArgumentException("Need 1 <= minSize <= maxSize, got " + minSize + ".." + maxSize);
+            }
+            this.autoTuneMin = minSize;
+            this.autoTuneMax = maxSize;
+            return this;
+        }
+
+        /**
+         * Saves each cached repository's hot keys to
+         * {@code directory/<Entity>.snapshot} on close and reloads them in the
+         * background on the next start, so the first minutes after a restart
+         * do not run on an empty cache:
+         * <pre>{@code
+         * .cacheSnapshots(new File(plugin.getDataFolder(), "cache"), false)
+         * }</pre>
+         * See {@link CachedRepository.Builder#snapshot(java.nio.file.Path, boolean)}
+         * for {@code includeValues}.
+         */
+        public Builder cacheSnapshots(File directory, boolean includeValues) {
+            this.snapshotDirectory = directory;
+            this.snapshotValues = includeValues;
+            return this;
+        }
+
+        /**
+         * Exports every cached repository's metrics (hit rate, load and flush
+         * latency percentiles, dirty backlog) over JMX as
+         * {@code dev.notmarra.notlib:type=Cache,name=<Entity>}; see
+         * {@link dev.notmarra.notlib.cache.NotCacheMXBean}.
+         */
+        public Builder exportCacheMetrics() {
+            this.exportCacheMetrics = true;
+            return this;
+        }
+
         public Builder defaultTtlMinutes(long minutes) {
             this.defaultTtlMillis = minutes * 60 * 1000L; return this;
         }
@@ -266,6 +369,19 @@ public class DatabaseManager {
             this.defaultExecutor = executor; return this;
         }
 
+        /**
+         * Scheduler shared by the expiry sweeps and write-behind flushes of
+         * every cache and repository this manager creates. Defaults to
+         * {@link MaintenanceScheduler#shared()}, so 20 registered entities
+         * still use a single maintenance thread:
+         * <pre>{@code
+         * .maintenance(MaintenanceScheduler.virtualThreads("MyPlugin"))
+         * }</pre>
+         */
+        public Builder maintenance(MaintenanceScheduler maintenance) {
+            this.maintenance = maintenance; return this;
+        }
+
         public DatabaseManager build() {
             return new DatabaseManager(this);
         }
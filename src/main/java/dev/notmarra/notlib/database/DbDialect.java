@@ -4,6 +4,51 @@ public enum DbDialect {
     SQLITE,
     MARIADB,
     MYSQL,
-    POSTGRESQL
-}
+    POSTGRESQL;
+
+    /**
+     * Maximum number of {@code ?} placeholders a single statement may bind.
+     * SQLite builds before 3.32 cap this at 999, so that is used as the safe
+     * value; the others are protocol limits.
+     */
+    public int maxBindParameters() {
+        return switch (this) {
+            case SQLITE -> 999;
+            case MARIADB, MYSQL -> 65_535;
+            case POSTGRESQL -> 32_767;
+        };
+    }
+
+    /**
+     * Whether {@code =}, {@code <} and {@code ORDER BY} compare text ignoring
+     * case and trailing spaces, as the default MariaDB/MySQL collations do.
+     */
+    public boolean caseInsensitiveStrings() {
+        return this == MARIADB || this == MYSQL;
+    }
+
+    /** Whether {@code LIKE} ignores case (ASCII only on SQLite). */
+    public boolean caseInsensitiveLike() {
+        return this != POSTGRESQL;
+    }
 
+    /** Whether NULLs sort before every value in ascending order (PostgreSQL puts them last). */
+    public boolean nullsSortFirst() {
+        return this != POSTGRESQL;
+    }
+
+    /**
+     * JDBC fetch size that makes the driver stream a result set instead of
+     * buffering all of it: MySQL Connector/J only streams with
+     * {@link Integer#MIN_VALUE} (row by row), MariaDB Connector/J and
+     * PostgreSQL fetch {@code rows} at a time. SQLite steps lazily anyway.
+     */
+    public int streamingFetchSize(int rows) {
+        return this == MYSQL ? Integer.MIN_VALUE : rows;
+    }
+
+    /** Whether the driver only honours the fetch size with auto-commit off (PostgreSQL). */
+    public boolean streamingRequiresTransaction() {
+        return this == POSTGRESQL;
+    }
+}
@@ -0,0 +1,340 @@
+package dev.notmarra.notlib.database;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves entities between {@link ResultSet}s / {@link PreparedStatement}s and
+ * objects, built once per {@link EntityTable}.
+ *
+ * <p>{@link #generated(EntityTable)} (what {@code EntityRepository} uses)
+ * resolves the no-arg constructor and every column field to
+ * {@link MethodHandle}s up front, looks each column up by index once per
+ * result set rather than by name on every row, and reads and binds through
+ * the typed JDBC accessors ({@code getInt}, {@code setLong}, ...), so
+ * primitive fields are never boxed. For an entity compiled with the
+ * {@link dev.notmarra.notlib.database.processor.EntityProcessor} it delegates
+ * to the generated {@link EntityMetadata} instead, whose accessors are plain
+ * field reads and writes. {@link #reflective(EntityTable)} is the
+ * plain {@code Field.get/set} + {@code getObject(name)} mapping, kept as the
+ * fallback and as the benchmark baseline.
+ *
+ * <pre>{@code
+ * EntityMapper<PlayerProfile> mapper = EntityMapper.generated(table);
+ * EntityMapper.RowReader<PlayerProfile> reader = mapper.reader(rs);
+ * while (rs.next()) profiles.add(reader.read(rs));
+ * }</pre>
+ */
+public final class EntityMapper<T> {
+
+    /** Maps the current row of the result set it was created for. */
+    @FunctionalInterface
+    public interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private enum Kind { INT, LONG, DOUBLE, FLOAT, BOOLEAN, STRING, UUID_TEXT, OTHER }
+
+    private final EntityTable<T> table;
+    private final boolean generated;
+    // Compile-time accessors; null for the reflective mapper or without the processor
+    private final EntityMetadata<T> metadata;
+    // ()Object
+    private final MethodHandle constructor;
+    private final Constructor<T> reflectiveConstructor;
+    // Table order, as bound by insert/upsert
+    private final Column[] columns;
+    // Non-key columns, then the key, as bound by update; null without a primary key
+    private final Column[] updateOrder;
+
+    private EntityMapper(EntityTable<T> table, boolean generated) {
+        this.table = table;
+        this.generated = generated;
+        this.metadata = generated ? table.getMetadata() : null;
+        boolean handles = generated && metadata == null;
+        if (metadata != null) {
+            // The generated class creates, reads and binds; no reflection needed
+            this.reflectiveConstructor = null;
+            this.constructor = null;
+        } else {
+            try {
+                this.reflectiveConstructor = table.getEntityClass().getDeclaredConstructor();
+                reflectiveConstructor.setAccessible(true);
+                this.constructor = handles
+                        ? MethodHandles.lookup().unreflectConstructor(reflectiveConstructor)
+                                .asType(MethodType.methodType(Object.class))
+                        : null;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(table.getEntityClass().getName() + " needs a no-arg constructor", e);
+            }
+        }
+
+        List<EntityTable.FieldColumn> fieldColumns = table.getColumns();
+        this.columns = new Column[fieldColumns.size()];
+        Column pk = null;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(fieldColumns.get(i), metadata == null, handles);
+            if (fieldColumns.get(i).annotation().primaryKey()) pk = columns[i];
+        }
+        if (pk != null) {
+            this.updateOrder = new Column[columns.length];
+            int next = 0;
+            for (Column c : columns) if (c != pk) updateOrder[next++] = c;
+            updateOrder[next] = pk;
+        } else {
+            this.updateOrder = null;
+        }
+    }
+
+    /** Method-handle mapper with typed column access; see the class doc. */
+    public static <T> EntityMapper<T> generated(EntityTable<T> table) {
+        return new EntityMapper<>(table, true);
+    }
+
+    /** Reflection-only mapper: {@code Field.get/set} and by-name {@code getObject}. */
+    public static <T> EntityMapper<T> reflective(EntityTable<T> table) {
+        return new EntityMapper<>(table, false);
+    }
+
+    public boolean isGenerated() { return generated; }
+
+    public EntityTable<T> getTable() { return table; }
+
+    // ── READ ─────────────────────────────────────────────────────────────────
+
+    /**
+     * A reader for the rows of {@code rs}. The generated mapper resolves the
+     * index of every column here, once, instead of searching by name per row.
+     */
+    public RowReader<T> reader(ResultSet rs) throws SQLException {
+        if (!generated) return this::mapReflective;
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) indexes[i] = rs.findColumn(columns[i].name);
+        if (metadata != null) return row -> metadata.read(row, indexes);
+        return row -> {
+            T entity = newInstance();
+            for (int i = 0; i < columns.length; i++) columns[i].read(entity, row, indexes[i]);
+            return entity;
+        };
+    }
+
+    /** Maps the current row on its own; prefer {@link #reader(ResultSet)} for more than one row. */
+    public T map(ResultSet rs) throws SQLException {
+        return reader(rs).read(rs);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() throws SQLException {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow("Cannot create " + table.getEntityClass().getName(), t);
+        }
+    }
+
+    private T mapReflective(ResultSet rs) throws SQLException {
+        try {
+            T instance = reflectiveConstructor.newInstance();
+            for (Column c : columns) c.field.set(instance, readObject(rs.getObject(c.name), c.field.getType()));
+            return instance;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot map " + table.getEntityClass().getName(), e);
+        }
+    }
+
+    /** Converts a value read with {@code getObject} to the type of the field it is set on. */
+    public static Object readObject(Object value, Class<?> targetType) {
+        if (targetType == UUID.class && value instanceof String s) return UUID.fromString(s);
+        return TypeMapper.convertValue(value, targetType);
+    }
+
+    // ── BIND ─────────────────────────────────────────────────────────────────
+
+    /** Binds every column, in table order, from parameter 1 (insert / upsert). */
+    public void bind(PreparedStatement stmt, T entity) throws SQLException {
+        if (metadata != null) {
+            metadata.bind(stmt, entity);
+            return;
+        }
+        for (int i = 0; i < columns.length; i++) columns[i].bind(stmt, i + 1, entity);
+    }
+
+    /** Binds the non-key columns and then the primary key, from parameter 1 (update). */
+    public void bindUpdate(PreparedStatement stmt, T entity) throws SQLException {
+        if (updateOrder == null) throw new IllegalStateException("Entity does not have a primary key");
+        if (metadata != null) {
+            metadata.bindUpdate(stmt, entity);
+            return;
+        }
+        for (int i = 0; i < updateOrder.length; i++) updateOrder[i].bind(stmt, i + 1, entity);
+    }
+
+    // ── COLUMNS ──────────────────────────────────────────────────────────────
+
+    private static final class Column {
+        private static final MethodType GET_OBJECT = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SET_OBJECT = MethodType.methodType(void.class, Object.class, Object.class);
+
+        // Null when the generated metadata does the access
+        final Field field;
+        final String name;
+        final Kind kind;
+        final boolean primitive;
+        // Typed (Object)int, (Object,int)void, ... for primitives; (Object)Object / (Object,Object)void otherwise
+        final MethodHandle getter;
+        final MethodHandle setter;
+
+        Column(EntityTable.FieldColumn fc, boolean reflect, boolean handles) {
+            this.name = fc.annotation().name();
+            if (!reflect) {
+                this.field = null;
+                this.kind = Kind.OTHER;
+                this.primitive = false;
+                this.getter = null;
+                this.setter = null;
+                return;
+            }
+            this.field = fc.field();
+            Class<?> type = field.getType();
+            this.primitive = type.isPrimitive();
+            this.kind = kindOf(type);
+            field.setAccessible(true);
+            if (!handles) {
+                this.getter = null;
+                this.setter = null;
+                return;
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                // Accessible fields can be unreflected even when final, like Field.set
+                MethodHandle get = lookup.unreflectGetter(field);
+                MethodHandle set = lookup.unreflectSetter(field);
+                this.getter = primitive ? get.asType(MethodType.methodType(type, Object.class)) : get.asType(GET_OBJECT);
+                this.setter = primitive
+                        ? set.asType(MethodType.methodType(void.class, Object.class, type))
+                        : set.asType(SET_OBJECT);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access " + field, e);
+            }
+        }
+
+        private static Kind kindOf(Class<?> type) {
+            if (type == int.class || type == Integer.class) return Kind.INT;
+            if (type == long.class || type == Long.class) return Kind.LONG;
+            if (type == double.class || type == Double.class) return Kind.DOUBLE;
+            if (type == float.class || type == Float.class) return Kind.FLOAT;
+            if (type == boolean.class || type == Boolean.class) return Kind.BOOLEAN;
+            if (type == String.class) return Kind.STRING;
+            if (type == UUID.class) return Kind.UUID_TEXT;
+            return Kind.OTHER;
+        }
+
+        // SQL NULL leaves a primitive field at its default, as a fresh entity has it
+        void read(Object entity, ResultSet rs, int index) throws SQLException {
+            try {
+                switch (kind) {
+                    case INT -> {
+                        int v = rs.getInt(index);
+                        if (primitive) { if (!rs.wasNull()) setter.invokeExact(entity, v); }
+                        else setter.invokeExact(entity, rs.wasNull() ? null : (Object) v);
+                    }
+                    case LONG -> {
+                        long v = rs.getLong(index);
+                        if (primitive) { if (!rs.wasNull()) setter.invokeExact(entity, v); }
+                        else setter.invokeExact(entity, rs.wasNull() ? null : (Object) v);
+                    }
+                    case DOUBLE -> {
+                        double v = rs.getDouble(index);
+                        if (primitive) { if (!rs.wasNull()) setter.invokeExact(entity, v); }
+                        else setter.invokeExact(entity, rs.wasNull() ? null : (Object) v);
+                    }
+                    case FLOAT -> {
+                        float v = rs.getFloat(index);
+                        if (primitive) { if (!rs.wasNull()) setter.invokeExact(entity, v); }
+                        else setter.invokeExact(entity, rs.wasNull() ? null : (Object) v);
+                    }
+                    case BOOLEAN -> {
+                        boolean v = rs.getBoolean(index);
+                        if (primitive) { if (!rs.wasNull()) setter.invokeExact(entity, v); }
+                        else setter.invokeExact(entity, rs.wasNull() ? null : (Object) v);
+                    }
+                    case STRING -> setter.invokeExact(entity, (Object) rs.getString(index));
+                    case UUID_TEXT -> {
+                        String s = rs.getString(index);
+                        setter.invokeExact(entity, s == null ? null : (Object) UUID.fromString(s));
+                    }
+                    case OTHER -> setter.invokeExact(entity, readObject(rs.getObject(index), field.getType()));
+                }
+            } catch (Throwable t) {
+                throw rethrow("Cannot read column " + name, t);
+            }
+        }
+
+        void bind(PreparedStatement stmt, int index, Object entity) throws SQLException {
+            try {
+                if (setter == null) {
+                    Object value = field.get(entity);
+                    stmt.setObject(index, value instanceof UUID ? value.toString() : value);
+                    return;
+                }
+                if (primitive) {
+                    switch (kind) {
+                        case INT -> stmt.setInt(index, (int) getter.invokeExact(entity));
+                        case LONG -> stmt.setLong(index, (long) getter.invokeExact(entity));
+                        case DOUBLE -> stmt.setDouble(index, (double) getter.invokeExact(entity));
+                        case FLOAT -> stmt.setFloat(index, (float) getter.invokeExact(entity));
+                        case BOOLEAN -> stmt.setBoolean(index, (boolean) getter.invokeExact(entity));
+                        default -> throw new IllegalStateException("Unsupported primitive " + field.getType());
+                    }
+                    return;
+                }
+                Object value = (Object) getter.invokeExact(entity);
+                if (value == null) {
+                    stmt.setNull(index, sqlType());
+                    return;
+                }
+                switch (kind) {
+                    case INT -> stmt.setInt(index, (Integer) value);
+                    case LONG -> stmt.setLong(index, (Long) value);
+                    case DOUBLE -> stmt.setDouble(index, (Double) value);
+                    case FLOAT -> stmt.setFloat(index, (Float) value);
+                    case BOOLEAN -> stmt.setBoolean(index, (Boolean) value);
+                    case STRING -> stmt.setString(index, (String) value);
+                    case UUID_TEXT -> stmt.setString(index, value.toString());
+                    case OTHER -> stmt.setObject(index, value);
+                }
+            } catch (Throwable t) {
+                throw rethrow("Cannot bind column " + name, t);
+            }
+        }
+
+        private int sqlType() {
+            return switch (kind) {
+                case INT -> Types.INTEGER;
+                case LONG -> Types.BIGINT;
+                case DOUBLE -> Types.DOUBLE;
+                case FLOAT -> Types.FLOAT;
+                case BOOLEAN -> Types.BOOLEAN;
+                case STRING, UUID_TEXT -> Types.VARCHAR;
+                case OTHER -> Types.JAVA_OBJECT;
+            };
+        }
+    }
+
+    // Method handles declare Throwable; let SQL and unchecked failures through unchanged
+    private static RuntimeException rethrow(String message, Throwable t) throws SQLException {
+        if (t instanceof SQLException e) throw e;
+        if (t instanceof RuntimeException e) throw e;
+        if (t instanceof Error e) throw e;
+        throw new IllegalStateException(message, t);
+    }
+}
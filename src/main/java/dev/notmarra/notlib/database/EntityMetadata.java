@@ -0,0 +1,68 @@
+package dev.notmarra.notlib.database;
+
+import dev.notmarra.notlib.database.annotation.Column;
+
+import java.lang.annotation.Annotation;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Compile-time description of a {@code @Table} entity, implemented by the
+ * {@code <Entity>_NotLibMeta} class that
+ * {@link dev.notmarra.notlib.database.processor.EntityProcessor} generates
+ * next to it. {@link EntityTable} picks it up automatically and then skips
+ * the reflective field scan; {@link EntityMapper} maps rows and binds
+ * parameters through its direct field accessors.
+ *
+ * Entities compiled without the processor keep working through reflection.
+ * Not meant to be implemented by hand.
+ */
+public interface EntityMetadata<T> {
+
+    /** Appended to the entity's binary name to form the generated class name. */
+    String CLASS_SUFFIX = "_NotLibMeta";
+
+    /**
+     * One {@code @Column}, as written in the source. Implements the
+     * annotation interface so {@link EntityTable.FieldColumn#annotation()}
+     * reads the same whether it came from here or from reflection.
+     *
+     * @param field the Java field name
+     */
+    record ColumnSpec(String field, String name, boolean primaryKey, boolean autoIncrement,
+                      boolean nullable, boolean unique, int length) implements Column {
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return Column.class;
+        }
+    }
+
+    Class<T> entityClass();
+
+    String tableName();
+
+    /** Every column in declaration order. */
+    List<ColumnSpec> columns();
+
+    /** {@code CREATE TABLE IF NOT EXISTS} statement, rendered at compile time. */
+    String createTable(DbDialect dialect);
+
+    T newInstance();
+
+    /** The primary-key field's value; {@code null} if the entity has none. */
+    Object primaryKey(T entity);
+
+    /**
+     * Maps the current row. {@code indexes[i]} is the result-set index of
+     * {@code columns().get(i)}.
+     */
+    T read(ResultSet rs, int[] indexes) throws SQLException;
+
+    /** Binds every column in {@link #columns()} order, from parameter 1. */
+    void bind(PreparedStatement stmt, T entity) throws SQLException;
+
+    /** Binds the non-key columns and then the primary key, from parameter 1. */
+    void bindUpdate(PreparedStatement stmt, T entity) throws SQLException;
+}
@@ -8,43 +8,119 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.logging.Logger;
 
 public class EntityTable<T> {
+    private static final Logger LOGGER = Logger.getLogger(EntityTable.class.getName());
+
+    // Generated <Entity>_NotLibMeta instance per entity class; null when it was not compiled with the processor
+    private static final ClassValue<EntityMetadata<?>> METADATA = new ClassValue<>() {
+        @Override
+        protected EntityMetadata<?> computeValue(Class<?> type) {
+            return loadMetadata(type);
+        }
+    };
+
     private final Class<T> clazz;
     private final String tableName;
     private final List<FieldColumn> columns;
     private final DbDialect dbDialect;
+    // Null unless the entity was compiled with the EntityProcessor
+    private final EntityMetadata<T> metadata;
+    private final FieldColumn primaryKey;
 
-    public record FieldColumn(Field field, Column annotation) {}
+    /**
+     * A column and the field it maps. With generated metadata the
+     * {@link Field} is only looked up the first time {@link #field()} is
+     * called, so mapping and binding never touch reflection.
+     */
+    public static final class FieldColumn {
+        private final Class<?> owner;
+        private final String fieldName;
+        private final Column annotation;
+        private volatile Field field;
 
-    public EntityTable(Class<T> clazz, DbDialect dbDialect) {
-        Table table = clazz.getAnnotation(Table.class);
-        if (table == null) throw new IllegalArgumentException(clazz.getName() + " does not have @Table annotation!");
+        public FieldColumn(Field field, Column annotation) {
+            this.owner = field.getDeclaringClass();
+            this.fieldName = field.getName();
+            this.annotation = annotation;
+            this.field = field;
+        }
+
+        FieldColumn(Class<?> owner, String fieldName, Column annotation) {
+            this.owner = owner;
+            this.fieldName = fieldName;
+            this.annotation = annotation;
+        }
+
+        public Field field() {
+            Field f = field;
+            if (f == null) field = f = declaredField(owner, fieldName);
+            return f;
+        }
 
+        public Column annotation() { return annotation; }
+
+        /** The Java field name, without resolving the field. */
+        public String fieldName() { return fieldName; }
+    }
+
+    @SuppressWarnings("unchecked")
+    public EntityTable(Class<T> clazz, DbDialect dbDialect) {
         this.clazz = clazz;
-        this.tableName = table.name();
         this.dbDialect = dbDialect;
-        this.columns = Arrays.stream(clazz.getDeclaredFields())
-                .filter(f -> f.isAnnotationPresent(Column.class))
-                .map(f -> new FieldColumn(f, f.getAnnotation(Column.class)))
-                .toList();
+        this.metadata = (EntityMetadata<T>) METADATA.get(clazz);
+        if (metadata != null) {
+            // Generated at compile time: no field scan, no annotation parsing
+            this.tableName = metadata.tableName();
+            List<FieldColumn> declared = new ArrayList<>(metadata.columns().size());
+            for (EntityMetadata.ColumnSpec spec : metadata.columns()) {
+                declared.add(new FieldColumn(clazz, spec.field(), spec));
+            }
+            this.columns = List.copyOf(declared);
+        } else {
+            Table table = clazz.getAnnotation(Table.class);
+            if (table == null) throw new IllegalArgumentException(clazz.getName() + " does not have @Table annotation!");
+            this.tableName = table.name();
+            this.columns = Arrays.stream(clazz.getDeclaredFields())
+                    .filter(f -> f.isAnnotationPresent(Column.class))
+                    .map(f -> new FieldColumn(f, f.getAnnotation(Column.class)))
+                    .toList();
+        }
+        this.primaryKey = columns.stream().filter(fc -> fc.annotation().primaryKey()).findFirst().orElse(null);
+        if (primaryKey != null && metadata == null) primaryKey.field().setAccessible(true);
     }
 
     public String buildCreateTable() {
+        if (metadata != null) return metadata.createTable(dbDialect);
+        return buildCreateTable(tableName,
+                columns.stream().map(FieldColumn::annotation).toList(),
+                columns.stream().<Class<?>>map(fc -> fc.field().getType()).toList(),
+                dbDialect);
+    }
+
+    /**
+     * {@code CREATE TABLE IF NOT EXISTS} for the given columns and their Java
+     * types; shared with the annotation processor, which renders it at
+     * compile time.
+     */
+    public static String buildCreateTable(String tableName, List<? extends Column> columns, List<Class<?>> types,
+                                          DbDialect dbDialect) {
         StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableName + " (");
 
         List<String> parts = new ArrayList<>();
-        for (FieldColumn fc : columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
             StringBuilder col = new StringBuilder();
-            col.append(fc.annotation().name()).append(" ");
-            col.append(TypeMapper.toSqlType(fc.field().getType(), fc.annotation().length()));
+            col.append(column.name()).append(" ");
+            col.append(TypeMapper.toSqlType(types.get(i), column.length()));
 
-            if (fc.annotation().primaryKey()) col.append(" PRIMARY KEY");
-            if (fc.annotation().autoIncrement()) {
+            if (column.primaryKey()) col.append(" PRIMARY KEY");
+            if (column.autoIncrement()) {
                 col.append(dbDialect == DbDialect.SQLITE ? " AUTOINCREMENT" : " AUTO_INCREMENT");
             }
-            if (!fc.annotation().nullable()) col.append(" NOT NULL");
-            if (fc.annotation().unique())    col.append(" UNIQUE");
+            if (!column.nullable()) col.append(" NOT NULL");
+            if (column.unique())    col.append(" UNIQUE");
 
             parts.add(col.toString());
         }
@@ -57,7 +133,74 @@ public class EntityTable<T> {
     public List<FieldColumn> getColumns() { return columns; }
     public Class<T> getEntityClass() { return clazz; }
 
+    /** The generated metadata, or {@code null} when the entity was not compiled with the processor. */
+    public EntityMetadata<T> getMetadata() { return metadata; }
+
+    /**
+     * Reads the primary key of {@code entity} – through the generated
+     * accessor when there is one.
+     *
+     * @throws IllegalStateException if the entity has no primary key
+     */
+    public Object primaryKeyOf(T entity) {
+        if (primaryKey == null) throw new IllegalStateException(clazz.getName() + " does not have a primary key");
+        if (metadata != null) return metadata.primaryKey(entity);
+        try {
+            return primaryKey.field().get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read primary key of " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a fingerprint of the table name and every column's name,
+     * field, Java type and constraints. Anything persisted outside the
+     * database in this table's layout (e.g. cache snapshots) stores it and is
+     * discarded when it no longer matches.
+     */
+    public long schemaHash() {
+        StringBuilder schema = new StringBuilder(tableName);
+        for (FieldColumn fc : columns) {
+            Column c = fc.annotation();
+            schema.append('|').append(c.name())
+                    .append(':').append(fc.fieldName())
+                    .append(':').append(fc.field().getType().getName())
+                    .append(':').append(c.primaryKey()).append(c.autoIncrement())
+                    .append(c.nullable()).append(c.unique()).append(c.length());
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < schema.length(); i++) {
+            hash ^= schema.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
     public Optional<FieldColumn> getPrimaryKey() {
-        return columns.stream().filter(fc -> fc.annotation().primaryKey()).findFirst();
+        return Optional.ofNullable(primaryKey);
+    }
+
+    private static Field declaredField(Class<?> clazz, String name) {
+        try {
+            return clazz.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(clazz.getName() + EntityMetadata.CLASS_SUFFIX
+                    + " is stale: no field " + name + " – recompile the entity", e);
+        }
+    }
+
+    private static EntityMetadata<?> loadMetadata(Class<?> clazz) {
+        String name = clazz.getName() + EntityMetadata.CLASS_SUFFIX;
+        try {
+            Class<?> generated = Class.forName(name, true, clazz.getClassLoader());
+            if (!EntityMetadata.class.isAssignableFrom(generated)) return null;
+            return (EntityMetadata<?>) generated.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Built against another NotLib version, or its class init failed: reflection still works
+            LOGGER.warning("[EntityTable] Ignoring " + name + ": " + e);
+            return null;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,366 @@
+package dev.notmarra.notlib.database.processor;
+
+import dev.notmarra.notlib.database.DbDialect;
+import dev.notmarra.notlib.database.EntityMetadata;
+import dev.notmarra.notlib.database.EntityTable;
+import dev.notmarra.notlib.database.annotation.Column;
+import dev.notmarra.notlib.database.annotation.Table;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Generates an {@link EntityMetadata} class, {@code <Entity>_NotLibMeta}, in
+ * the package of every {@link Table @Table} entity: column list, primary-key
+ * accessor, create-table SQL for each dialect, row mapper and binders, all
+ * as plain field reads and writes ({@code VarHandle}s for private fields).
+ * {@link EntityTable} uses it when present, so plugins with many entities
+ * skip the reflective field and annotation scan at startup.
+ *
+ * Registered through {@code META-INF/services}, so it runs for any plugin
+ * that compiles against notlib with annotation processing enabled:
+ * <pre>{@code
+ * <plugin>
+ *     <artifactId>maven-compiler-plugin</artifactId>
+ *     <configuration>
+ *         <annotationProcessorPaths>
+ *             <path>
+ *                 <groupId>dev.notmarra</groupId>
+ *                 <artifactId>notlib</artifactId>
+ *                 <version>${notlib.version}</version>
+ *             </path>
+ *         </annotationProcessorPaths>
+ *     </configuration>
+ * </plugin>
+ * }</pre>
+ *
+ * Entities it cannot describe – generic, private or inner classes, no no-arg
+ * constructor, {@code final} or {@code static} columns – are reported as a
+ * note and keep using reflection at runtime.
+ */
+@SupportedAnnotationTypes("dev.notmarra.notlib.database.annotation.Table")
+public class EntityProcessor extends AbstractProcessor {
+
+    private static final Map<String, Class<?>> BOXED_TYPES = Map.of(
+            "java.lang.Integer", Integer.class,
+            "java.lang.Long", Long.class,
+            "java.lang.Double", Double.class,
+            "java.lang.Float", Float.class,
+            "java.lang.Boolean", Boolean.class,
+            "java.lang.String", String.class,
+            "java.util.UUID", UUID.class
+    );
+
+    private record ColumnField(VariableElement element, EntityMetadata.ColumnSpec spec, Class<?> type, boolean direct) {
+        String name() { return element.getSimpleName().toString(); }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Table.class)) {
+            if (element.getKind() != ElementKind.CLASS) continue;
+            TypeElement entity = (TypeElement) element;
+            String reason = unsupported(entity);
+            if (reason != null) {
+                note(entity, "Not generating metadata for " + entity.getQualifiedName() + " (" + reason
+                        + "); it will be mapped through reflection");
+                continue;
+            }
+            List<ColumnField> columns = columns(entity);
+            if (columns == null) continue;
+            try {
+                write(entity, columns);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Cannot write metadata for " + entity.getQualifiedName() + ": " + e.getMessage(), entity);
+            }
+        }
+        return false; // @Table stays visible to other processors
+    }
+
+    // ── ANALYSIS ─────────────────────────────────────────────────────────────
+
+    private String unsupported(TypeElement entity) {
+        if (!entity.getTypeParameters().isEmpty()) return "generic class";
+        if (entity.getModifiers().contains(Modifier.ABSTRACT)) return "abstract class";
+        for (Element e = entity; e instanceof TypeElement type; e = e.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) return "private class";
+            if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) {
+                return "inner class";
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                return "local class";
+            }
+        }
+        boolean noArg = ElementFilter.constructorsIn(entity.getEnclosedElements()).stream()
+                .anyMatch(c -> c.getParameters().isEmpty());
+        if (!noArg) return "no no-arg constructor";
+        for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            if (field.getAnnotation(Column.class) == null) continue;
+            if (field.getModifiers().contains(Modifier.STATIC)) return "static column " + field.getSimpleName();
+            if (field.getModifiers().contains(Modifier.FINAL)) return "final column " + field.getSimpleName();
+        }
+        return null;
+    }
+
+    private List<ColumnField> columns(TypeElement entity) {
+        List<ColumnField> columns = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(entity.getEnclosedElements())) {
+            Column c = field.getAnnotation(Column.class);
+            if (c == null) continue;
+            Class<?> type = javaType(field.asType());
+            if (type == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unsupported @Column type " + field.asType() + " (int, long, double, float, boolean, their wrappers,"
+                                + " String and UUID are supported)", field);
+                return null;
+            }
+            EntityMetadata.ColumnSpec spec = new EntityMetadata.ColumnSpec(field.getSimpleName().toString(),
+                    c.name(), c.primaryKey(), c.autoIncrement(), c.nullable(), c.unique(), c.length());
+            columns.add(new ColumnField(field, spec, type, !field.getModifiers().contains(Modifier.PRIVATE)));
+        }
+        return columns;
+    }
+
+    private static Class<?> javaType(TypeMirror type) {
+        return switch (type.getKind()) {
+            case INT -> int.class;
+            case LONG -> long.class;
+            case DOUBLE -> double.class;
+            case FLOAT -> float.class;
+            case BOOLEAN -> boolean.class;
+            case DECLARED -> BOXED_TYPES.get(type.toString());
+            default -> null;
+        };
+    }
+
+    // ── CODE GENERATION ──────────────────────────────────────────────────────
+
+    private void write(TypeElement entity, List<ColumnField> columns) throws IOException {
+        String pkg = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(entity).toString();
+        String className = (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)) + EntityMetadata.CLASS_SUFFIX;
+        String type = entity.getQualifiedName().toString();
+        String table = entity.getAnnotation(Table.class).name();
+        ColumnField pk = columns.stream().filter(c -> c.spec().primaryKey()).findFirst().orElse(null);
+        ExecutableElement constructor = ElementFilter.constructorsIn(entity.getEnclosedElements()).stream()
+                .filter(c -> c.getParameters().isEmpty()).findFirst().orElseThrow();
+        boolean directNew = !constructor.getModifiers().contains(Modifier.PRIVATE);
+        boolean needsLookup = !directNew || columns.stream().anyMatch(c -> !c.direct());
+
+        List<EntityMetadata.ColumnSpec> specs = columns.stream().map(ColumnField::spec).toList();
+        List<Class<?>> types = columns.stream().<Class<?>>map(ColumnField::type).toList();
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) src.append("package ").append(pkg).append(";\n\n");
+        src.append("import dev.notmarra.notlib.database.DbDialect;\n")
+                .append("import dev.notmarra.notlib.database.EntityMetadata;\n\n")
+                .append("import java.sql.PreparedStatement;\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n")
+                .append("import java.sql.Types;\n")
+                .append("import java.util.List;\n\n")
+                .append("/** Metadata of {@link ").append(type).append("}, generated by NotLib's EntityProcessor – do not edit. */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(EntityProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(className).append(" implements EntityMetadata<").append(type).append("> {\n");
+
+        src.append("    private static final List<ColumnSpec> COLUMNS = List.of(\n");
+        for (int i = 0; i < specs.size(); i++) {
+            EntityMetadata.ColumnSpec s = specs.get(i);
+            src.append("            new ColumnSpec(").append(literal(s.field())).append(", ").append(literal(s.name()))
+                    .append(", ").append(s.primaryKey()).append(", ").append(s.autoIncrement())
+                    .append(", ").append(s.nullable()).append(", ").append(s.unique())
+                    .append(", ").append(s.length()).append(i + 1 < specs.size() ? "),\n" : ")\n");
+        }
+        src.append("    );\n")
+                .append("    private static final String CREATE_SQLITE = ")
+                .append(literal(EntityTable.buildCreateTable(table, specs, types, DbDialect.SQLITE))).append(";\n")
+                .append("    private static final String CREATE_OTHER = ")
+                .append(literal(EntityTable.buildCreateTable(table, specs, types, DbDialect.MARIADB))).append(";\n");
+
+        if (needsLookup) {
+            if (!directNew) src.append("    private static final java.lang.invoke.MethodHandle NEW;\n");
+            for (ColumnField c : columns) {
+                if (!c.direct()) src.append("    private static final java.lang.invoke.VarHandle F_").append(c.name()).append(";\n");
+            }
+            src.append("\n    static {\n        try {\n")
+                    .append("            java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.privateLookupIn(")
+                    .append(type).append(".class, java.lang.invoke.MethodHandles.lookup());\n");
+            if (!directNew) {
+                src.append("            NEW = lookup.findConstructor(").append(type)
+                        .append(".class, java.lang.invoke.MethodType.methodType(void.class));\n");
+            }
+            for (ColumnField c : columns) {
+                if (c.direct()) continue;
+                src.append("            F_").append(c.name()).append(" = lookup.findVarHandle(").append(type).append(".class, ")
+                        .append(literal(c.name())).append(", ").append(c.type().getCanonicalName()).append(".class);\n");
+            }
+            src.append("        } catch (ReflectiveOperationException e) {\n")
+                    .append("            throw new ExceptionInInitializerError(e);\n")
+                    .append("        }\n    }\n");
+        }
+
+        src.append("\n    @Override public Class<").append(type).append("> entityClass() { return ").append(type).append(".class; }\n")
+                .append("    @Override public String tableName() { return ").append(literal(table)).append("; }\n")
+                .append("    @Override public List<ColumnSpec> columns() { return COLUMNS; }\n\n")
+                .append("    @Override\n    public String createTable(DbDialect dialect) {\n")
+                .append("        return dialect == DbDialect.SQLITE ? CREATE_SQLITE : CREATE_OTHER;\n    }\n\n");
+
+        src.append("    @Override\n    public ").append(type).append(" newInstance() {\n");
+        if (directNew) {
+            src.append("        return new ").append(type).append("();\n");
+        } else {
+            src.append("        try {\n            return (").append(type).append(") NEW.invokeExact();\n")
+                    .append("        } catch (Throwable t) {\n")
+                    .append("            throw new IllegalStateException(\"Cannot create ").append(type).append("\", t);\n")
+                    .append("        }\n");
+        }
+        src.append("    }\n\n");
+
+        src.append("    @Override\n    public Object primaryKey(").append(type).append(" e) {\n")
+                .append("        return ").append(pk != null ? get(pk) : "null").append(";\n    }\n\n");
+
+        src.append("    @Override\n    public ").append(type).append(" read(ResultSet rs, int[] indexes) throws SQLException {\n")
+                .append("        ").append(type).append(" e = newInstance();\n");
+        for (int i = 0; i < columns.size(); i++) src.append(read(columns.get(i), i));
+        src.append("        return e;\n    }\n\n");
+
+        src.append("    @Override\n    public void bind(PreparedStatement stmt, ").append(type).append(" e) throws SQLException {\n");
+        for (int i = 0; i < columns.size(); i++) {
+            src.append("        bind").append(i).append("(stmt, ").append(i + 1).append(", e);\n");
+        }
+        src.append("    }\n\n");
+
+        src.append("    @Override\n    public void bindUpdate(PreparedStatement stmt, ").append(type).append(" e) throws SQLException {\n");
+        if (pk == null) {
+            src.append("        throw new IllegalStateException(\"Entity does not have a primary key\");\n");
+        } else {
+            int index = 1;
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i) == pk) continue;
+                src.append("        bind").append(i).append("(stmt, ").append(index++).append(", e);\n");
+            }
+            src.append("        bind").append(columns.indexOf(pk)).append("(stmt, ").append(index).append(", e);\n");
+        }
+        src.append("    }\n");
+
+        for (int i = 0; i < columns.size(); i++) {
+            src.append("\n    private static void bind").append(i).append("(PreparedStatement stmt, int index, ").append(type)
+                    .append(" e) throws SQLException {\n").append(bind(columns.get(i))).append("    }\n");
+        }
+        src.append("}\n");
+
+        try (Writer out = processingEnv.getFiler().createSourceFile(pkg.isEmpty() ? className : pkg + "." + className, entity)
+                .openWriter()) {
+            out.write(src.toString());
+        }
+    }
+
+    private static String get(ColumnField c) {
+        return c.direct() ? "e." + c.name() : "(" + c.type().getCanonicalName() + ") F_" + c.name() + ".get(e)";
+    }
+
+    // Every value expression passed here already has the field's exact type, which is
+    // also what the VarHandle call site needs, so no cast is emitted
+    private static String set(ColumnField c, String value) {
+        return c.direct()
+                ? "e." + c.name() + " = " + value + ";"
+                : "F_" + c.name() + ".set(e, " + value + ");";
+    }
+
+    // SQL NULL leaves a primitive at its default, as a fresh entity has it
+    private static String read(ColumnField c, int i) {
+        String index = "indexes[" + i + "]";
+        Class<?> t = c.type();
+        if (t == String.class) return "        " + set(c, "rs.getString(" + index + ")") + "\n";
+        if (t == UUID.class) {
+            return "        { String v = rs.getString(" + index + "); "
+                    + set(c, "(v == null ? null : java.util.UUID.fromString(v))") + " }\n";
+        }
+        String primitive = t.isPrimitive() ? t.getName() : primitiveOf(t);
+        String getter = "rs.get" + Character.toUpperCase(primitive.charAt(0)) + primitive.substring(1) + "(" + index + ")";
+        if (t.isPrimitive()) {
+            return "        { " + primitive + " v = " + getter + "; if (!rs.wasNull()) " + set(c, "v") + " }\n";
+        }
+        return "        { " + primitive + " v = " + getter + "; "
+                + set(c, "(rs.wasNull() ? null : " + t.getSimpleName() + ".valueOf(v))") + " }\n";
+    }
+
+    private static String bind(ColumnField c) {
+        Class<?> t = c.type();
+        if (t == String.class) return "        stmt.setString(index, " + get(c) + ");\n";
+        if (t.isPrimitive()) {
+            String name = t.getName();
+            return "        stmt.set" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "(index, " + get(c) + ");\n";
+        }
+        String value = t == UUID.class ? "v.toString()" : "v";
+        String setter = t == UUID.class ? "setString" : "set" + capitalize(primitiveOf(t));
+        return "        " + t.getCanonicalName() + " v = " + get(c) + ";\n"
+                + "        if (v == null) stmt.setNull(index, Types." + sqlType(t) + ");\n"
+                + "        else stmt." + setter + "(index, " + value + ");\n";
+    }
+
+    private static String primitiveOf(Class<?> boxed) {
+        if (boxed == Integer.class) return "int";
+        if (boxed == Long.class) return "long";
+        if (boxed == Double.class) return "double";
+        if (boxed == Float.class) return "float";
+        return "boolean";
+    }
+
+    private static String sqlType(Class<?> t) {
+        if (t == Integer.class) return "INTEGER";
+        if (t == Long.class) return "BIGINT";
+        if (t == Double.class) return "DOUBLE";
+        if (t == Float.class) return "FLOAT";
+        if (t == Boolean.class) return "BOOLEAN";
+        return "VARCHAR";
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    private static String literal(String s) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char ch : s.toCharArray()) {
+            switch (ch) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append(ch);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private void note(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+}
@@ -2,24 +2,30 @@ package dev.notmarra.notlib.database.repository;
 
 import dev.notmarra.notlib.database.DbDialect;
 import dev.notmarra.notlib.database.Database;
+import dev.notmarra.notlib.database.EntityMapper;
 import dev.notmarra.notlib.database.EntityTable;
-import dev.notmarra.notlib.database.TypeMapper;
 
-import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class EntityRepository<T> {
     private final Database database;
     private final EntityTable<T> table;
+    // CRUD SQL rendered once for this table and dialect
+    private final EntityStatements sql;
+    // Method-handle row mapping and binding, built once per entity class
+    private final EntityMapper<T> mapper;
 
     /**
      * Executor used by all *Async methods.
@@ -37,8 +43,15 @@ public class EntityRepository<T> {
     private Executor executor = ForkJoinPool.commonPool();
 
     public EntityRepository(Database database, Class<T> clazz) {
+        this(database, new EntityTable<>(clazz, database.getDialect()));
+    }
+
+    /** Shares an {@link EntityTable} the caller already built, e.g. a {@code CachedRepository}'s. */
+    public EntityRepository(Database database, EntityTable<T> table) {
         this.database = database;
-        this.table = new EntityTable<>(clazz, database.getDialect());
+        this.table = table;
+        this.sql = new EntityStatements(table, database.getDialect());
+        this.mapper = EntityMapper.generated(table);
     }
 
     /**
@@ -63,11 +76,9 @@ public class EntityRepository<T> {
     // ── INSERT ───────────────────────────────────────────────────────────────
 
     public void insert(T entity) {
-        List<EntityTable.FieldColumn> cols = table.getColumns();
-        String sql = buildInsertSql(cols);
         database.withConnection(conn -> {
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            bindValues(stmt, entity, cols);
+            PreparedStatement stmt = conn.prepareStatement(sql.insert);
+            mapper.bind(stmt, entity);
             stmt.executeUpdate();
         });
     }
@@ -79,25 +90,7 @@ public class EntityRepository<T> {
     // Bulk insert
     public void insertAll(List<T> entities) {
         if (entities.isEmpty()) return;
-        List<EntityTable.FieldColumn> cols = table.getColumns();
-        String sql = buildInsertSql(cols);
-        database.withConnection(conn -> {
-            conn.setAutoCommit(false);
-            try {
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                for (T entity : entities) {
-                    bindValues(stmt, entity, cols);
-                    stmt.addBatch();
-                }
-                stmt.executeBatch();
-                conn.commit();
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
-        });
+        executeBatch(sql.insert, entities);
     }
 
     public CompletableFuture<Void> insertAllAsync(List<T> entities) {
@@ -107,31 +100,9 @@ public class EntityRepository<T> {
     // ── UPSERT ───────────────────────────────────────────────────────────────
 
     public void upsert(T entity) {
-        List<EntityTable.FieldColumn> cols = table.getColumns();
-        List<EntityTable.FieldColumn> nonPkCols = cols.stream()
-                .filter(fc -> !fc.annotation().primaryKey()).toList();
-
-        String columns = cols.stream().map(fc -> fc.annotation().name()).collect(Collectors.joining(", "));
-        String placeholders = cols.stream().map(fc -> "?").collect(Collectors.joining(", "));
-
-        String sql;
-        if (database.getDialect() == DbDialect.SQLITE) {
-            // SQLite: INSERT OR REPLACE
-            sql = "INSERT OR REPLACE INTO " + table.getTableName()
-                    + " (" + columns + ") VALUES (" + placeholders + ")";
-        } else {
-            // MariaDB/MySQL: INSERT ... ON DUPLICATE KEY UPDATE
-            String updateClause = nonPkCols.stream()
-                    .map(fc -> fc.annotation().name() + " = VALUES(" + fc.annotation().name() + ")")
-                    .collect(Collectors.joining(", "));
-            sql = "INSERT INTO " + table.getTableName()
-                    + " (" + columns + ") VALUES (" + placeholders + ")"
-                    + " ON DUPLICATE KEY UPDATE " + updateClause;
-        }
-
         database.withConnection(conn -> {
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            bindValues(stmt, entity, cols);
+            PreparedStatement stmt = conn.prepareStatement(sql.upsert);
+            mapper.bind(stmt, entity);
             stmt.executeUpdate();
         });
     }
@@ -143,44 +114,7 @@ public class EntityRepository<T> {
     // Bulk upsert
     public void upsertAll(List<T> entities) {
         if (entities.isEmpty()) return;
-        // Build the upsert SQL once and batch all entities
-        List<EntityTable.FieldColumn> cols = table.getColumns();
-        List<EntityTable.FieldColumn> nonPkCols = cols.stream()
-                .filter(fc -> !fc.annotation().primaryKey()).toList();
-
-        String columns = cols.stream().map(fc -> fc.annotation().name()).collect(Collectors.joining(", "));
-        String placeholders = cols.stream().map(fc -> "?").collect(Collectors.joining(", "));
-
-        String sql;
-        if (database.getDialect() == DbDialect.SQLITE) {
-            sql = "INSERT OR REPLACE INTO " + table.getTableName()
-                    + " (" + columns + ") VALUES (" + placeholders + ")";
-        } else {
-            String updateClause = nonPkCols.stream()
-                    .map(fc -> fc.annotation().name() + " = VALUES(" + fc.annotation().name() + ")")
-                    .collect(Collectors.joining(", "));
-            sql = "INSERT INTO " + table.getTableName()
-                    + " (" + columns + ") VALUES (" + placeholders + ")"
-                    + " ON DUPLICATE KEY UPDATE " + updateClause;
-        }
-
-        database.withConnection(conn -> {
-            conn.setAutoCommit(false);
-            try {
-                PreparedStatement stmt = conn.prepareStatement(sql);
-                for (T entity : entities) {
-                    bindValues(stmt, entity, cols);
-                    stmt.addBatch();
-                }
-                stmt.executeBatch();
-                conn.commit();
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
-        });
+        executeBatch(sql.upsert, entities);
     }
 
     public CompletableFuture<Void> upsertAllAsync(List<T> entities) {
@@ -190,17 +124,14 @@ public class EntityRepository<T> {
     // ── FIND ─────────────────────────────────────────────────────────────────
 
     public Optional<T> findById(Object id) {
-        EntityTable.FieldColumn pk = table.getPrimaryKey()
-                .orElseThrow(() -> new IllegalStateException("Entity does not have a primary key"));
-
-        String sql = "SELECT * FROM " + table.getTableName() + " WHERE " + pk.annotation().name() + " = ?";
+        sql.requirePk();
 
         final Optional<T>[] result = new Optional[]{Optional.empty()};
         database.withConnection(conn -> {
-            PreparedStatement stmt = conn.prepareStatement(sql);
+            PreparedStatement stmt = conn.prepareStatement(sql.findById);
             stmt.setObject(1, id instanceof UUID ? id.toString() : id);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) result[0] = Optional.of(mapRow(rs));
+            if (rs.next()) result[0] = Optional.of(mapper.map(rs));
         });
         return result[0];
     }
@@ -209,12 +140,65 @@ public class EntityRepository<T> {
         return CompletableFuture.supplyAsync(() -> findById(id), executor);
     }
 
+    /**
+     * Loads every entity whose primary key is in {@code ids} with
+     * {@code WHERE pk IN (...)} queries, split into chunks of at most
+     * {@link DbDialect#maxBindParameters()} ids. Missing ids are skipped;
+     * the result order is unspecified.
+     */
+    public List<T> findAllById(Collection<?> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+        sql.requirePk();
+
+        List<Object> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        int chunkSize = database.getDialect().maxBindParameters();
+        List<T> results = new ArrayList<>(distinct.size());
+        database.withConnection(conn -> {
+            for (int from = 0; from < distinct.size(); from += chunkSize) {
+                List<Object> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+                PreparedStatement stmt = conn.prepareStatement(sql.findByIds(chunk.size()));
+                for (int i = 0; i < chunk.size(); i++) {
+                    Object id = chunk.get(i);
+                    stmt.setObject(i + 1, id instanceof UUID ? id.toString() : id);
+                }
+                ResultSet rs = stmt.executeQuery();
+                EntityMapper.RowReader<T> reader = mapper.reader(rs);
+                while (rs.next()) results.add(reader.read(rs));
+            }
+        });
+        return results;
+    }
+
+    public CompletableFuture<List<T>> findAllByIdAsync(Collection<?> ids) {
+        return CompletableFuture.supplyAsync(() -> findAllById(ids), executor);
+    }
+
+    /**
+     * Keys-only scan: returns every primary key without loading the rows,
+     * converted to the primary-key field's type.
+     */
+    public List<Object> findAllIds() {
+        EntityTable.FieldColumn pk = sql.requirePk();
+
+        List<Object> ids = new ArrayList<>();
+        database.withConnection(conn -> {
+            ResultSet rs = conn.createStatement().executeQuery(sql.findIds);
+            while (rs.next()) ids.add(EntityMapper.readObject(rs.getObject(1), pk.field().getType()));
+        });
+        return ids;
+    }
+
+    public CompletableFuture<List<Object>> findAllIdsAsync() {
+        return CompletableFuture.supplyAsync(this::findAllIds, executor);
+    }
+
+    /** Loads the whole table into memory; see {@link #stream()} for large tables. */
     public List<T> findAll() {
-        String sql = "SELECT * FROM " + table.getTableName();
         List<T> results = new ArrayList<>();
         database.withConnection(conn -> {
-            ResultSet rs = conn.createStatement().executeQuery(sql);
-            while (rs.next()) results.add(mapRow(rs));
+            ResultSet rs = conn.createStatement().executeQuery(sql.selectAll);
+            EntityMapper.RowReader<T> reader = mapper.reader(rs);
+            while (rs.next()) results.add(reader.read(rs));
         });
         return results;
     }
@@ -223,6 +207,31 @@ public class EntityRepository<T> {
         return CompletableFuture.supplyAsync(this::findAll, executor);
     }
 
+    /**
+     * Every row as a lazily mapped stream that holds a connection until
+     * closed; see {@link QueryBuilder#stream()}.
+     */
+    public Stream<T> stream() {
+        return query().stream();
+    }
+
+    public void forEach(Consumer<? super T> action) {
+        query().forEach(action);
+    }
+
+    public CompletableFuture<Void> forEachAsync(Consumer<? super T> action) {
+        return query().forEachAsync(action);
+    }
+
+    /** Every row, in lists of at most {@code batchSize}; see {@link QueryBuilder#forEachBatch}. */
+    public long forEachBatch(int batchSize, Consumer<? super List<T>> consumer) {
+        return query().forEachBatch(batchSize, consumer);
+    }
+
+    public CompletableFuture<Long> forEachBatchAsync(int batchSize, Consumer<? super List<T>> consumer) {
+        return query().forEachBatchAsync(batchSize, consumer);
+    }
+
     public boolean exists(Object id) {
         return findById(id).isPresent();
     }
@@ -234,22 +243,11 @@ public class EntityRepository<T> {
     // ── UPDATE ───────────────────────────────────────────────────────────────
 
     public void update(T entity) {
-        EntityTable.FieldColumn pk = table.getPrimaryKey()
-                .orElseThrow(() -> new IllegalStateException("Entity does not have a primary key"));
-
-        List<EntityTable.FieldColumn> nonPkCols = table.getColumns().stream()
-                .filter(fc -> !fc.annotation().primaryKey()).toList();
-
-        String setClause = nonPkCols.stream()
-                .map(fc -> fc.annotation().name() + " = ?").collect(Collectors.joining(", "));
-        String sql = "UPDATE " + table.getTableName() + " SET " + setClause + " WHERE " + pk.annotation().name() + " = ?";
+        sql.requirePk();
 
         database.withConnection(conn -> {
-            PreparedStatement stmt = conn.prepareStatement(sql);
-            bindValues(stmt, entity, nonPkCols);
-            pk.field().setAccessible(true);
-            Object pkValue = pk.field().get(entity);
-            stmt.setObject(nonPkCols.size() + 1, pkValue instanceof UUID ? pkValue.toString() : pkValue);
+            PreparedStatement stmt = conn.prepareStatement(sql.update);
+            mapper.bindUpdate(stmt, entity);
             stmt.executeUpdate();
         });
     }
@@ -261,12 +259,10 @@ public class EntityRepository<T> {
     // ── DELETE ───────────────────────────────────────────────────────────────
 
     public void delete(Object id) {
-        EntityTable.FieldColumn pk = table.getPrimaryKey()
-                .orElseThrow(() -> new IllegalStateException("Entity does not have a primary key"));
+        sql.requirePk();
 
-        String sql = "DELETE FROM " + table.getTableName() + " WHERE " + pk.annotation().name() + " = ?";
         database.withConnection(conn -> {
-            PreparedStatement stmt = conn.prepareStatement(sql);
+            PreparedStatement stmt = conn.prepareStatement(sql.delete);
             stmt.setObject(1, id instanceof UUID ? id.toString() : id);
             stmt.executeUpdate();
         });
@@ -278,36 +274,29 @@ public class EntityRepository<T> {
 
     // ── HELPERS ──────────────────────────────────────────────────────────────
 
-    private String buildInsertSql(List<EntityTable.FieldColumn> cols) {
-        String columns = cols.stream().map(fc -> fc.annotation().name()).collect(Collectors.joining(", "));
-        String placeholders = cols.stream().map(fc -> "?").collect(Collectors.joining(", "));
-        return "INSERT INTO " + table.getTableName() + " (" + columns + ") VALUES (" + placeholders + ")";
-    }
-
-    private void bindValues(PreparedStatement stmt, T entity, List<EntityTable.FieldColumn> cols) throws Exception {
-        for (int i = 0; i < cols.size(); i++) {
-            Field field = cols.get(i).field();
-            field.setAccessible(true);
-            Object value = field.get(entity);
-            stmt.setObject(i + 1, value instanceof UUID ? value.toString() : value);
-        }
-    }
-
-    T mapRow(ResultSet rs) throws Exception {
-        T instance = table.getEntityClass().getDeclaredConstructor().newInstance();
-        for (EntityTable.FieldColumn fc : table.getColumns()) {
-            fc.field().setAccessible(true);
-            Object value = rs.getObject(fc.annotation().name());
-            Class<?> targetType = fc.field().getType();
-
-            if (targetType == UUID.class && value instanceof String s) {
-                value = UUID.fromString(s);
-            } else {
-                value = TypeMapper.convertValue(value, targetType);
+    // Binds every entity into one batch of the given statement, in a single transaction
+    private void executeBatch(String statement, List<T> entities) {
+        database.withConnection(conn -> {
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement stmt = conn.prepareStatement(statement);
+                for (T entity : entities) {
+                    mapper.bind(stmt, entity);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        });
+    }
 
-            fc.field().set(instance, value);
-        }
-        return instance;
+    /** Row reader for {@code rs}; column indexes are resolved once per result set. */
+    EntityMapper.RowReader<T> rowReader(ResultSet rs) throws Exception {
+        return mapper.reader(rs);
     }
 }
\ No newline at end of file
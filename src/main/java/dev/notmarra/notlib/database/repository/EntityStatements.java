@@ -0,0 +1,91 @@
+package dev.notmarra.notlib.database.repository;
+
+import dev.notmarra.notlib.database.DbDialect;
+import dev.notmarra.notlib.database.EntityTable;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Every CRUD statement of one {@link EntityTable}, rendered once for its
+ * dialect when the {@link EntityRepository} is created. Single-row writes and
+ * lookups then hand the driver the same string on every call, which also
+ * lets its prepared-statement cache (see {@code MariaDB}) hit.
+ */
+final class EntityStatements {
+    // Null when the entity has no primary key; the statements that need one are null too
+    final EntityTable.FieldColumn pk;
+
+    final String insert;
+    final String upsert;
+    final String selectAll;
+    final String findById;
+    final String findIds;
+    final String update;
+    final String delete;
+
+    // "SELECT * ... IN (?, ...)" for a full findAllById chunk, the only size that repeats
+    private final String findByIdsPrefix;
+    private final int fullChunk;
+    private final String findByFullChunk;
+
+    EntityStatements(EntityTable<?> table, DbDialect dialect) {
+        String name = table.getTableName();
+        List<EntityTable.FieldColumn> columns = table.getColumns();
+        List<EntityTable.FieldColumn> nonPkColumns = columns.stream().filter(fc -> !fc.annotation().primaryKey()).toList();
+        this.pk = table.getPrimaryKey().orElse(null);
+
+        String columnList = columns.stream().map(fc -> fc.annotation().name()).collect(Collectors.joining(", "));
+        String placeholders = placeholders(columns.size());
+        this.insert = "INSERT INTO " + name + " (" + columnList + ") VALUES (" + placeholders + ")";
+        if (dialect == DbDialect.SQLITE) {
+            // SQLite: INSERT OR REPLACE
+            this.upsert = "INSERT OR REPLACE INTO " + name + " (" + columnList + ") VALUES (" + placeholders + ")";
+        } else {
+            // MariaDB/MySQL: INSERT ... ON DUPLICATE KEY UPDATE
+            String updateClause = nonPkColumns.stream()
+                    .map(fc -> fc.annotation().name() + " = VALUES(" + fc.annotation().name() + ")")
+                    .collect(Collectors.joining(", "));
+            this.upsert = insert + " ON DUPLICATE KEY UPDATE " + updateClause;
+        }
+        this.selectAll = "SELECT * FROM " + name;
+
+        if (pk != null) {
+            String pkName = pk.annotation().name();
+            String setClause = nonPkColumns.stream()
+                    .map(fc -> fc.annotation().name() + " = ?").collect(Collectors.joining(", "));
+            this.findById = selectAll + " WHERE " + pkName + " = ?";
+            this.findIds = "SELECT " + pkName + " FROM " + name;
+            this.update = "UPDATE " + name + " SET " + setClause + " WHERE " + pkName + " = ?";
+            this.delete = "DELETE FROM " + name + " WHERE " + pkName + " = ?";
+            this.findByIdsPrefix = selectAll + " WHERE " + pkName + " IN (";
+        } else {
+            this.findById = null;
+            this.findIds = null;
+            this.update = null;
+            this.delete = null;
+            this.findByIdsPrefix = null;
+        }
+        this.fullChunk = dialect.maxBindParameters();
+        this.findByFullChunk = pk != null ? findByIdsPrefix + placeholders(fullChunk) + ")" : null;
+    }
+
+    EntityTable.FieldColumn requirePk() {
+        if (pk == null) throw new IllegalStateException("Entity does not have a primary key");
+        return pk;
+    }
+
+    /** {@code WHERE pk IN (...)} with {@code count} placeholders. */
+    String findByIds(int count) {
+        requirePk();
+        return count == fullChunk ? findByFullChunk : findByIdsPrefix + placeholders(count) + ")";
+    }
+
+    private static String placeholders(int count) {
+        if (count == 0) return "";
+        StringBuilder sb = new StringBuilder(count * 3);
+        sb.append('?');
+        for (int i = 1; i < count; i++) sb.append(", ?");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package dev.notmarra.notlib.database.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Encodes the sort-key values of a page's last row as the URL-safe Base64
+ * cursor handed out by {@link QueryBuilder#page(int, String)}. Values are
+ * {@code null}, {@link Long}, {@link Double}, {@link Boolean} or
+ * {@link String}. A fingerprint of the ORDER BY columns is stored with them
+ * so a cursor from a differently sorted query is rejected instead of
+ * silently seeking to the wrong place.
+ */
+final class KeysetCursor {
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 'n';
+    private static final byte LONG = 'l';
+    private static final byte DOUBLE = 'd';
+    private static final byte BOOLEAN = 'b';
+    private static final byte STRING = 's';
+
+    private KeysetCursor() {}
+
+    static String encode(int fingerprint, Object[] values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(fingerprint);
+            out.writeByte(values.length);
+            for (Object value : values) {
+                switch (value) {
+                    case null -> out.writeByte(NULL);
+                    case Long l -> {
+                        out.writeByte(LONG);
+                        out.writeLong(l);
+                    }
+                    case Double d -> {
+                        out.writeByte(DOUBLE);
+                        out.writeDouble(d);
+                    }
+                    case Boolean b -> {
+                        out.writeByte(BOOLEAN);
+                        out.writeBoolean(b);
+                    }
+                    case String s -> {
+                        out.writeByte(STRING);
+                        out.writeUTF(s);
+                    }
+                    default -> throw new IllegalArgumentException("Unsupported cursor value: " + value.getClass());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream, cannot happen
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static Object[] decode(String cursor, int fingerprint, int count) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readByte() != VERSION) throw new IllegalArgumentException("Malformed cursor");
+            if (in.readInt() != fingerprint || in.readByte() != count) {
+                throw new IllegalArgumentException("Cursor does not belong to this query's ORDER BY");
+            }
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = switch (in.readByte()) {
+                    case NULL -> null;
+                    case LONG -> in.readLong();
+                    case DOUBLE -> in.readDouble();
+                    case BOOLEAN -> in.readBoolean();
+                    case STRING -> in.readUTF();
+                    default -> throw new IllegalArgumentException("Malformed cursor");
+                };
+            }
+            if (in.available() > 0) throw new IllegalArgumentException("Malformed cursor");
+            return values;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cursor", e); // truncated
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package dev.notmarra.notlib.database.repository;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query, see {@link QueryBuilder#page(int, String)}.
+ *
+ * @param items      the rows of this page, in query order
+ * @param nextCursor opaque position after the last row, to pass to the next
+ *                   {@code page} call; {@code null} on the last page
+ * @param <T>        entity type
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,21 +1,35 @@
 package dev.notmarra.notlib.database.repository;
 
 import dev.notmarra.notlib.database.Database;
+import dev.notmarra.notlib.database.EntityMapper;
 import dev.notmarra.notlib.database.EntityTable;
 
+import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class QueryBuilder<T> {
+    private static final int DEFAULT_FETCH_SIZE = 500;
+
     private enum WhereMode { AND, OR }
+    // How SQL compares a column: numbers (incl. booleans as 0/1) or text (incl. UUIDs)
+    private enum Kind { NUMBER, TEXT }
 
     private record WhereClause(String column, String operator, Object value, WhereMode mode, boolean isIn) {}
     private record OrderClause(String column, SortOrder order) {}
@@ -29,6 +43,9 @@ public class QueryBuilder<T> {
     private final List<OrderClause> orderClauses = new ArrayList<>();
     private Integer limit = null;
     private Integer offset = null;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    // Evaluate against these rows instead of the database when they are complete
+    private ResidentRows<T> resident = null;
 
     public QueryBuilder(Database database, EntityTable<T> table, EntityRepository<T> repository, Executor executor) {
         this.database = database;
@@ -82,11 +99,237 @@ public class QueryBuilder<T> {
         return this;
     }
 
+    /** Rows per round trip for {@link #stream()} and the {@code forEach} terminators; default 500. */
+    public QueryBuilder<T> fetchSize(int fetchSize) {
+        if (fetchSize <= 0) throw new IllegalArgumentException("fetchSize must be positive");
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    // ── IN-MEMORY EVALUATION ─────────────────────────────────────────────────
+
+    /**
+     * Runs the terminators against {@code rows} instead of the database
+     * whenever they can provide a snapshot. The SQL semantics of the table's
+     * dialect are kept: AND binds tighter than OR, a comparison with NULL
+     * never matches, NULLs sort first in ascending order (last on
+     * PostgreSQL), and text compares case-insensitively on MariaDB/MySQL.
+     * Operators other than {@code = != <> < <= > >= LIKE NOT LIKE}, unknown
+     * columns, or comparing text with numbers fall back to SQL.
+     */
+    public QueryBuilder<T> resident(ResidentRows<T> rows) {
+        this.resident = rows;
+        return this;
+    }
+
+    /** Matching rows from the resident snapshot, or {@code null} if the query has to run as SQL. */
+    private List<T> findInMemory(boolean sortAndPage) {
+        if (resident == null) return null;
+        Predicate<T> where = memoryWhere();
+        Comparator<T> order = memoryOrder();
+        if (where == null || order == null) return null;
+        Collection<T> rows = resident.snapshot();
+        if (rows == null) return null;
+
+        List<T> result = new ArrayList<>();
+        for (T row : rows) {
+            if (where.test(row)) result.add(row);
+        }
+        if (!sortAndPage) return result;
+        if (!orderClauses.isEmpty()) result.sort(order);
+        int from = offset == null ? 0 : Math.min(Math.max(offset, 0), result.size());
+        int to = limit == null || limit < 0 ? result.size() : (int) Math.min((long) from + limit, result.size());
+        return from == 0 && to == result.size() ? result : new ArrayList<>(result.subList(from, to));
+    }
+
+    /** The WHERE clause as a predicate (OR of AND-groups), or {@code null} if it cannot be evaluated in memory. */
+    private Predicate<T> memoryWhere() {
+        Predicate<T> any = null;
+        Predicate<T> group = null;
+        for (int i = 0; i < whereClauses.size(); i++) {
+            WhereClause wc = whereClauses.get(i);
+            Predicate<T> clause = memoryClause(wc);
+            if (clause == null) return null;
+            if (i > 0 && wc.mode() == WhereMode.OR) {
+                any = any == null ? group : any.or(group);
+                group = clause;
+            } else {
+                group = group == null ? clause : group.and(clause);
+            }
+        }
+        if (group == null) return row -> true;
+        return any == null ? group : any.or(group);
+    }
+
+    private Predicate<T> memoryClause(WhereClause wc) {
+        EntityTable.FieldColumn fc = column(wc.column());
+        Kind kind = fc == null ? null : kindOf(fc.field().getType());
+        if (kind == null) return null;
+        Field field = fc.field();
+        field.setAccessible(true);
+
+        if (wc.isIn()) {
+            List<Object> values = new ArrayList<>();
+            for (Object v : (List<?>) wc.value()) {
+                if (v == null) continue; // x IN (.., NULL) can only match the other values
+                Object normalized = normalize(v, kind);
+                if (normalized == null) return null;
+                values.add(normalized);
+            }
+            return row -> {
+                Object x = read(field, row, kind);
+                if (x == null) return false;
+                for (Object v : values) {
+                    if (compare(x, v) == 0) return true;
+                }
+                return false;
+            };
+        }
+
+        String op = wc.operator().trim().toUpperCase(Locale.ROOT);
+        if (op.equals("LIKE") || op.equals("NOT LIKE")) {
+            if (wc.value() == null) return row -> false;
+            if (kind != Kind.TEXT || !(wc.value() instanceof String pattern)) return null;
+            Pattern regex = likePattern(pattern);
+            boolean negate = op.startsWith("NOT");
+            return row -> {
+                Object x = read(field, row, kind);
+                return x != null && regex.matcher((String) x).matches() != negate;
+            };
+        }
+
+        IntPredicate test = switch (op) {
+            case "=", "==" -> c -> c == 0;
+            case "!=", "<>" -> c -> c != 0;
+            case "<" -> c -> c < 0;
+            case "<=" -> c -> c <= 0;
+            case ">" -> c -> c > 0;
+            case ">=" -> c -> c >= 0;
+            default -> null;
+        };
+        if (test == null) return null;
+        if (wc.value() == null) return row -> false;
+        Object value = normalize(wc.value(), kind);
+        if (value == null) return null;
+        return row -> {
+            Object x = read(field, row, kind);
+            return x != null && test.test(compare(x, value));
+        };
+    }
+
+    /** The ORDER BY clause as a comparator, or {@code null} if it cannot be evaluated in memory. */
+    private Comparator<T> memoryOrder() {
+        Comparator<T> order = (a, b) -> 0;
+        boolean nullsFirst = database.getDialect().nullsSortFirst();
+        for (OrderClause oc : orderClauses) {
+            EntityTable.FieldColumn fc = column(oc.column());
+            Kind kind = fc == null ? null : kindOf(fc.field().getType());
+            if (kind == null) return null;
+            Field field = fc.field();
+            field.setAccessible(true);
+            Comparator<T> byColumn = (a, b) -> {
+                Object x = read(field, a, kind);
+                Object y = read(field, b, kind);
+                if (x == null || y == null) {
+                    if (x == y) return 0;
+                    return (x == null) == nullsFirst ? -1 : 1;
+                }
+                return compare(x, y);
+            };
+            order = order.thenComparing(oc.order() == SortOrder.DESC ? byColumn.reversed() : byColumn);
+        }
+        return order;
+    }
+
+    private EntityTable.FieldColumn column(String name) {
+        String trimmed = name.trim();
+        for (EntityTable.FieldColumn fc : table.getColumns()) {
+            if (fc.annotation().name().equalsIgnoreCase(trimmed)) return fc;
+        }
+        return null;
+    }
+
+    private static Kind kindOf(Class<?> type) {
+        if (type == String.class || type == UUID.class) return Kind.TEXT;
+        if (type == int.class || type == Integer.class || type == long.class || type == Long.class
+                || type == double.class || type == Double.class || type == float.class || type == Float.class
+                || type == boolean.class || type == Boolean.class) return Kind.NUMBER;
+        return null;
+    }
+
+    /** Converts a value to what the database would compare; {@code null} if SQL has to decide. */
+    private static Object normalize(Object value, Kind kind) {
+        if (kind == Kind.TEXT) {
+            if (value instanceof String) return value;
+            if (value instanceof UUID) return value.toString();
+            return null;
+        }
+        if (value instanceof Number) return value;
+        if (value instanceof Boolean b) return b ? 1L : 0L;
+        return null;
+    }
+
+    private static Object read(Field field, Object row, Kind kind) {
+        try {
+            Object value = field.get(row);
+            return value == null ? null : normalize(value, kind);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot read " + field.getName(), e);
+        }
+    }
+
+    private int compare(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) {
+            if (isIntegral(x) && isIntegral(y)) return Long.compare(x.longValue(), y.longValue());
+            double dx = x.doubleValue();
+            double dy = y.doubleValue();
+            return dx < dy ? -1 : dx > dy ? 1 : 0; // unlike Double.compare, -0.0 == 0.0 as in SQL
+        }
+        String x = (String) a;
+        String y = (String) b;
+        if (database.getDialect().caseInsensitiveStrings()) {
+            return x.stripTrailing().compareToIgnoreCase(y.stripTrailing());
+        }
+        return x.compareTo(y);
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+    }
+
+    /** Translates a LIKE pattern ({@code %}, {@code _}, and {@code \} escapes on MariaDB/MySQL) to a regex. */
+    private Pattern likePattern(String like) {
+        boolean backslashEscapes = database.getDialect().caseInsensitiveStrings();
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (backslashEscapes && c == '\\' && i + 1 < like.length()) {
+                regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        int flags = Pattern.DOTALL;
+        if (database.getDialect().caseInsensitiveLike()) {
+            flags |= Pattern.CASE_INSENSITIVE;
+            // SQLite only folds ASCII; the MariaDB/MySQL collations fold all letters
+            if (database.getDialect().caseInsensitiveStrings()) flags |= Pattern.UNICODE_CASE;
+        }
+        return Pattern.compile(regex.toString(), flags);
+    }
+
     // ── SQL BUILDING ─────────────────────────────────────────────────────────
 
     private String buildWhereClause() {
-        if (whereClauses.isEmpty()) return "";
-        StringBuilder sb = new StringBuilder(" WHERE ");
+        return whereClauses.isEmpty() ? "" : " WHERE " + buildConditions();
+    }
+
+    private String buildConditions() {
+        StringBuilder sb = new StringBuilder();
         for (int i = 0; i < whereClauses.size(); i++) {
             WhereClause wc = whereClauses.get(i);
             if (i > 0) sb.append(" ").append(wc.mode().name()).append(" ");
@@ -116,7 +359,8 @@ public class QueryBuilder<T> {
         return sb.toString();
     }
 
-    private void bindWhereValues(PreparedStatement stmt, int startIndex) throws Exception {
+    /** Binds the WHERE values from {@code startIndex}; returns the next free index. */
+    private int bindWhereValues(PreparedStatement stmt, int startIndex) throws Exception {
         int i = startIndex;
         for (WhereClause wc : whereClauses) {
             if (wc.isIn()) {
@@ -125,11 +369,158 @@ public class QueryBuilder<T> {
                 stmt.setObject(i++, wc.value());
             }
         }
+        return i;
+    }
+
+    // ── KEYSET PAGINATION ────────────────────────────────────────────────────
+
+    private record SortKey(EntityTable.FieldColumn column, Kind kind, SortOrder order) {
+        String name() { return column.annotation().name(); }
+    }
+
+    /** The ORDER BY columns, then the primary key unless already among them, so every row has a unique position. */
+    private List<SortKey> sortKeys() {
+        EntityTable.FieldColumn pk = table.getPrimaryKey()
+                .orElseThrow(() -> new IllegalStateException("Keyset pagination requires a primary key"));
+        List<SortKey> keys = new ArrayList<>();
+        boolean orderedByPk = false;
+        for (OrderClause oc : orderClauses) {
+            EntityTable.FieldColumn fc = column(oc.column());
+            if (fc == null) throw new IllegalArgumentException("Unknown orderBy column: " + oc.column());
+            keys.add(sortKey(fc, oc.order()));
+            orderedByPk |= fc.annotation().name().equalsIgnoreCase(pk.annotation().name());
+        }
+        if (!orderedByPk) keys.add(sortKey(pk, SortOrder.ASC));
+        return keys;
+    }
+
+    private static SortKey sortKey(EntityTable.FieldColumn fc, SortOrder order) {
+        Kind kind = kindOf(fc.field().getType());
+        if (kind == null) throw new IllegalArgumentException("Cannot paginate by column " + fc.annotation().name());
+        fc.field().setAccessible(true);
+        return new SortKey(fc, kind, order);
+    }
+
+    private static int fingerprint(List<SortKey> keys) {
+        int hash = 1;
+        for (SortKey key : keys) hash = 31 * hash + (key.name().toLowerCase(Locale.ROOT) + " " + key.order()).hashCode();
+        return hash;
+    }
+
+    // Sort-key values of a row as the cursor stores and binds them: Long, Double, Boolean or String
+    private static Object[] keyValues(List<SortKey> keys, Object row) {
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            Field field = keys.get(i).column().field();
+            Object value;
+            try {
+                value = field.get(row);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Cannot read " + field.getName(), e);
+            }
+            values[i] = switch (value) {
+                case null -> null;
+                case Integer n -> (long) n;
+                case Float n -> (double) n;
+                case Long n -> n;
+                case Double n -> n;
+                case Boolean b -> b;
+                default -> value.toString(); // String, UUID
+            };
+        }
+        return values;
+    }
+
+    // Whether NULLs come before the values of this key in the order the query walks it
+    private boolean nullsLead(SortKey key) {
+        return database.getDialect().nullsSortFirst() == (key.order() == SortOrder.ASC);
+    }
+
+    /**
+     * The rows strictly after {@code after} in sort-key order, expanded as
+     * {@code k1 > ? OR (k1 = ? AND k2 > ?) OR ...} so each key may have its own
+     * direction and NULLs sort where the dialect puts them. Appends the
+     * values to bind to {@code params}.
+     */
+    private String seekCondition(List<SortKey> keys, Object[] after, List<Object> params) {
+        StringBuilder sb = new StringBuilder();
+        SortKey first = keys.get(0);
+        if (after[0] != null && nullsLead(first)) {
+            // Implied by the OR below, but gives the planner an index range on the first key
+            sb.append(first.name()).append(first.order() == SortOrder.ASC ? " >= ?" : " <= ?").append(" AND ");
+            params.add(after[0]);
+        }
+        sb.append('(');
+        boolean any = false;
+        for (int i = 0; i < keys.size(); i++) {
+            SortKey key = keys.get(i);
+            String op = key.order() == SortOrder.ASC ? " > ?" : " < ?";
+            String step;
+            if (after[i] == null) {
+                if (!nullsLead(key)) continue; // NULLs are last, nothing follows on this key
+                step = key.name() + " IS NOT NULL";
+            } else {
+                step = nullsLead(key) ? key.name() + op : "(" + key.name() + op + " OR " + key.name() + " IS NULL)";
+            }
+            if (any) sb.append(" OR ");
+            any = true;
+            sb.append('(');
+            for (int j = 0; j < i; j++) {
+                if (after[j] == null) {
+                    sb.append(keys.get(j).name()).append(" IS NULL AND ");
+                } else {
+                    sb.append(keys.get(j).name()).append(" = ? AND ");
+                    params.add(after[j]);
+                }
+            }
+            sb.append(step).append(')');
+            if (after[i] != null) params.add(after[i]);
+        }
+        if (!any) sb.append("1 = 0");
+        return sb.append(')').toString();
+    }
+
+    /** Same order as the SQL: NULLs where the dialect sorts them, text compared as the database does. */
+    private int compareKeys(List<SortKey> keys, Object[] a, Object[] b) {
+        boolean nullsFirst = database.getDialect().nullsSortFirst();
+        for (int i = 0; i < keys.size(); i++) {
+            Kind kind = keys.get(i).kind();
+            Object x = a[i] == null ? null : normalize(a[i], kind);
+            Object y = b[i] == null ? null : normalize(b[i], kind);
+            int c;
+            if (x == null || y == null) {
+                c = x == y ? 0 : (x == null) == nullsFirst ? -1 : 1;
+            } else {
+                c = compare(x, y);
+            }
+            if (keys.get(i).order() == SortOrder.DESC) c = -c;
+            if (c != 0) return c;
+        }
+        return 0;
+    }
+
+    /** Up to {@code count} rows after {@code after} from the resident snapshot, or {@code null} to run SQL. */
+    private List<T> seekInMemory(List<SortKey> keys, Object[] after, int count) {
+        List<T> matching = findInMemory(false);
+        if (matching == null) return null;
+        record Keyed<R>(R row, Object[] values) {}
+        List<Keyed<T>> candidates = new ArrayList<>();
+        for (T row : matching) {
+            Object[] values = keyValues(keys, row);
+            if (after == null || compareKeys(keys, values, after) > 0) candidates.add(new Keyed<>(row, values));
+        }
+        candidates.sort((x, y) -> compareKeys(keys, x.values(), y.values()));
+        List<T> page = new ArrayList<>(Math.min(count, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < count; i++) page.add(candidates.get(i).row());
+        return page;
     }
 
     // ── TERMINATORS ──────────────────────────────────────────────────────────
 
     public List<T> findAll() {
+        List<T> resident = findInMemory(true);
+        if (resident != null) return resident;
+
         String sql = "SELECT * FROM " + table.getTableName()
                 + buildWhereClause()
                 + buildOrderClause()
@@ -140,12 +531,139 @@ public class QueryBuilder<T> {
             PreparedStatement stmt = conn.prepareStatement(sql);
             bindWhereValues(stmt, 1);
             ResultSet rs = stmt.executeQuery();
-            while (rs.next()) results.add(repository.mapRow(rs));
+            EntityMapper.RowReader<T> reader = repository.rowReader(rs);
+            while (rs.next()) results.add(reader.read(rs));
         });
         return results;
     }
 
+    /**
+     * Streams the matching rows instead of collecting them: the driver fetches
+     * {@link #fetchSize(int)} rows per round trip (MariaDB/PostgreSQL, row by
+     * row on MySQL) and each row is mapped only when the stream reaches it.
+     * The stream holds a pooled connection until it is exhausted or closed,
+     * so use it in try-with-resources:
+     * <pre>{@code
+     * try (Stream<PlayerProfile> rows = repo.query().where("level", ">", 10).stream()) {
+     *     rows.forEach(this::export);
+     * }
+     * }</pre>
+     * On MariaDB/MySQL the connection cannot run other statements while the
+     * stream is open, and closing it early still reads the remaining rows off
+     * the wire – use {@link #limit(int)} if only a prefix is needed.
+     */
+    public Stream<T> stream() {
+        List<T> resident = findInMemory(true);
+        if (resident != null) return resident.stream();
+
+        String sql = "SELECT * FROM " + table.getTableName()
+                + buildWhereClause()
+                + buildOrderClause()
+                + buildLimitOffset();
+        return RowCursor.open(database, repository, sql, fetchSize, stmt -> bindWhereValues(stmt, 1));
+    }
+
+    /** Runs {@code action} for every matching row, streamed as in {@link #stream()}. */
+    public void forEach(Consumer<? super T> action) {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(action);
+        }
+    }
+
+    /**
+     * Streams the matching rows as in {@link #stream()} and hands them to
+     * {@code consumer} in lists of at most {@code batchSize}; each list is new
+     * and may be kept. The connection stays checked out while the consumer
+     * runs, so hand slow work off rather than doing it inline.
+     *
+     * @return the number of rows processed
+     */
+    public long forEachBatch(int batchSize, Consumer<? super List<T>> consumer) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive");
+        long count = 0;
+        try (Stream<T> rows = stream()) {
+            Iterator<T> it = rows.iterator();
+            List<T> batch = new ArrayList<>(batchSize);
+            while (it.hasNext()) {
+                batch.add(it.next());
+                count++;
+                if (batch.size() == batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) consumer.accept(batch);
+        }
+        return count;
+    }
+
+    /**
+     * Keyset ("seek") pagination. Rows are ordered by the {@link #orderBy}
+     * columns plus the primary key as a tie-breaker, and each page starts
+     * with a {@code WHERE} on the previous page's last key values instead of
+     * an {@code OFFSET}, so the database never reads the skipped rows – page
+     * 500 costs the same as page 1 given an index on the sort columns.
+     * <pre>{@code
+     * Page<PlayerProfile> page = repo.query().orderBy("level", SortOrder.DESC).page(20, null);
+     * // later, with the cursor the client sent back:
+     * Page<PlayerProfile> next = repo.query().orderBy("level", SortOrder.DESC).page(20, page.nextCursor());
+     * }</pre>
+     * The cursor only fits a query with the same ORDER BY. Unlike OFFSET,
+     * rows inserted or deleted before the cursor between calls do not make
+     * the next page skip or repeat rows.
+     * {@code size} replaces {@link #limit(int)}; {@link #offset(int)} cannot
+     * be combined with it.
+     *
+     * @param cursor {@link Page#nextCursor()} of the previous page, or {@code null} for the first
+     * @throws IllegalArgumentException if the cursor is malformed or from a differently ordered query
+     */
+    public Page<T> page(int size, String cursor) {
+        if (size <= 0) throw new IllegalArgumentException("Page size must be positive");
+        if (offset != null) throw new IllegalStateException("offset() cannot be combined with keyset pagination");
+        List<SortKey> keys = sortKeys();
+        int fingerprint = fingerprint(keys);
+        Object[] after = cursor == null ? null : KeysetCursor.decode(cursor, fingerprint, keys.size());
+        int fetch = size == Integer.MAX_VALUE ? size : size + 1; // one extra row tells whether a next page exists
+
+        List<T> rows = seekInMemory(keys, after, fetch);
+        if (rows == null) {
+            List<Object> seekParams = new ArrayList<>();
+            String where;
+            if (after == null) {
+                where = buildWhereClause();
+            } else {
+                String seek = seekCondition(keys, after, seekParams);
+                where = whereClauses.isEmpty() ? " WHERE " + seek : " WHERE (" + buildConditions() + ") AND " + seek;
+            }
+            String sql = "SELECT * FROM " + table.getTableName() + where
+                    + " ORDER BY " + keys.stream().map(k -> k.name() + " " + k.order().name()).collect(Collectors.joining(", "))
+                    + " LIMIT " + fetch;
+
+            List<T> results = new ArrayList<>();
+            database.withConnection(conn -> {
+                PreparedStatement stmt = conn.prepareStatement(sql);
+                int index = bindWhereValues(stmt, 1);
+                for (Object v : seekParams) stmt.setObject(index++, v);
+                ResultSet rs = stmt.executeQuery();
+                EntityMapper.RowReader<T> reader = repository.rowReader(rs);
+                while (rs.next()) results.add(reader.read(rs));
+            });
+            rows = results;
+        }
+
+        if (rows.size() <= size) return new Page<>(rows, null);
+        List<T> items = new ArrayList<>(rows.subList(0, size));
+        return new Page<>(items, KeysetCursor.encode(fingerprint, keyValues(keys, items.get(size - 1))));
+    }
+
     public Optional<T> findFirst() {
+        List<T> resident = findInMemory(false);
+        if (resident != null) {
+            // Like the SQL below: LIMIT 1, offset ignored
+            Comparator<T> order = memoryOrder();
+            return orderClauses.isEmpty() ? resident.stream().findFirst() : resident.stream().min(order);
+        }
+
         String sql = "SELECT * FROM " + table.getTableName()
                 + buildWhereClause()
                 + buildOrderClause()
@@ -156,12 +674,15 @@ public class QueryBuilder<T> {
             PreparedStatement stmt = conn.prepareStatement(sql);
             bindWhereValues(stmt, 1);
             ResultSet rs = stmt.executeQuery();
-            if (rs.next()) result[0] = Optional.of(repository.mapRow(rs));
+            if (rs.next()) result[0] = Optional.of(repository.rowReader(rs).read(rs));
         });
         return result[0];
     }
 
     public long count() {
+        List<T> resident = findInMemory(false);
+        if (resident != null) return resident.size();
+
         String sql = "SELECT COUNT(*) FROM " + table.getTableName() + buildWhereClause();
         final long[] count = {0};
         database.withConnection(conn -> {
@@ -174,6 +695,14 @@ public class QueryBuilder<T> {
     }
 
     public void delete() {
+        if (resident != null) {
+            resident.delete(memoryWhere(), this::deleteFromDatabase);
+            return;
+        }
+        deleteFromDatabase();
+    }
+
+    private void deleteFromDatabase() {
         String sql = "DELETE FROM " + table.getTableName() + buildWhereClause();
         database.withConnection(conn -> {
             PreparedStatement stmt = conn.prepareStatement(sql);
@@ -188,6 +717,18 @@ public class QueryBuilder<T> {
         return CompletableFuture.supplyAsync(this::findAll, executor);
     }
 
+    public CompletableFuture<Void> forEachAsync(Consumer<? super T> action) {
+        return CompletableFuture.runAsync(() -> forEach(action), executor);
+    }
+
+    public CompletableFuture<Long> forEachBatchAsync(int batchSize, Consumer<? super List<T>> consumer) {
+        return CompletableFuture.supplyAsync(() -> forEachBatch(batchSize, consumer), executor);
+    }
+
+    public CompletableFuture<Page<T>> pageAsync(int size, String cursor) {
+        return CompletableFuture.supplyAsync(() -> page(size, cursor), executor);
+    }
+
     public CompletableFuture<Optional<T>> findFirstAsync() {
         return CompletableFuture.supplyAsync(this::findFirst, executor);
     }
@@ -0,0 +1,28 @@
+package dev.notmarra.notlib.database.repository;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory copy of a whole table that a {@link QueryBuilder} can run
+ * against instead of the database, see {@link QueryBuilder#resident(ResidentRows)}.
+ * Implemented by {@code CachedRepository} in fully resident mode.
+ *
+ * @param <T> entity type
+ */
+public interface ResidentRows<T> {
+
+    /**
+     * Every row of the table, or {@code null} if the copy is incomplete right
+     * now and the query has to go to the database.
+     */
+    Collection<T> snapshot();
+
+    /**
+     * Runs {@code sqlDelete} and drops the deleted rows from the copy.
+     *
+     * @param matches the query's WHERE clause, or {@code null} if it cannot be
+     *                evaluated in memory and the copy has to be reloaded
+     */
+    void delete(Predicate<T> matches, Runnable sqlDelete);
+}
@@ -0,0 +1,105 @@
+package dev.notmarra.notlib.database.repository;
+
+import dev.notmarra.notlib.database.Database;
+import dev.notmarra.notlib.database.DbDialect;
+import dev.notmarra.notlib.database.EntityMapper;
+import dev.notmarra.notlib.database.ThrowingConsumer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rows of an open result set, mapped one at a time as the stream pulls them.
+ * Owns a pooled connection, its statement and the result set until the last
+ * row has been read or the stream is closed, whichever comes first.
+ */
+final class RowCursor<T> extends Spliterators.AbstractSpliterator<T> {
+    private static final Logger LOGGER = Logger.getLogger(RowCursor.class.getName());
+
+    private final Connection conn;
+    private final boolean transaction;
+    private PreparedStatement stmt;
+    private ResultSet rs;
+    private EntityMapper.RowReader<T> reader;
+    private boolean closed;
+
+    private RowCursor(Connection conn, boolean transaction) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.conn = conn;
+        this.transaction = transaction;
+    }
+
+    /**
+     * Runs {@code sql} with a streaming fetch size and returns its rows as a
+     * lazy stream; closing the stream releases the connection.
+     */
+    static <T> Stream<T> open(Database database, EntityRepository<T> repository, String sql, int fetchSize,
+                              ThrowingConsumer<PreparedStatement> binder) {
+        DbDialect dialect = database.getDialect();
+        RowCursor<T> cursor;
+        try {
+            cursor = new RowCursor<>(database.getConnection(), dialect.streamingRequiresTransaction());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            if (cursor.transaction) cursor.conn.setAutoCommit(false);
+            cursor.stmt = cursor.conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            cursor.stmt.setFetchSize(dialect.streamingFetchSize(fetchSize));
+            binder.accept(cursor.stmt);
+            cursor.rs = cursor.stmt.executeQuery();
+            cursor.reader = repository.rowReader(cursor.rs);
+        } catch (Exception e) {
+            cursor.close();
+            throw new RuntimeException(e);
+        }
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) return false;
+        T row;
+        try {
+            if (!rs.next()) {
+                close();
+                return false;
+            }
+            row = reader.read(rs);
+        } catch (Exception e) {
+            close();
+            throw new RuntimeException(e);
+        }
+        action.accept(row);
+        return true;
+    }
+
+    private void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (transaction) {
+                conn.rollback(); // read-only, nothing to keep
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOGGER.warning("[RowCursor] Failed to close result set: " + e.getMessage());
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                LOGGER.warning("[RowCursor] Failed to release connection: " + e.getMessage());
+            }
+        }
+    }
+}
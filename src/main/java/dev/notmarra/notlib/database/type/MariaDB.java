@@ -38,6 +38,13 @@ public class MariaDB extends Database {
         config.setMaxLifetime(1_800_000);
         config.setKeepaliveTime(60_000);
 
+        // Server-side prepared statements, cached per connection: the repository
+        // reuses the same SQL strings, so after the first call the server skips the parse
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize",
+                props.getProperty("dataSource.prepStmtCacheSize", "250"));
+
         ds = new HikariDataSource(config);
 
         try (Connection conn = ds.getConnection()) {
@@ -1,5 +1,7 @@
 package dev.notmarra.notlib.extensions;
 
+import dev.notmarra.notlib.cache.CachedRepository;
+import dev.notmarra.notlib.cache.MaintenanceScheduler;
 import dev.notmarra.notlib.file.ConfigFileManager;
 import dev.notmarra.notlib.file.ConfigOptions;
 import dev.notmarra.notlib.file.ManagedConfig;
@@ -66,6 +68,7 @@ public abstract class NotPlugin extends JavaPlugin {
     // -----------------------------------------------------------------------
 
     private final List<DatabaseManager> managedDatabases = new ArrayList<>();
+    private MaintenanceScheduler maintenance;
 
     /**
      * Creates a {@link DatabaseManager.Builder} pre-configured with a
@@ -84,7 +87,8 @@ public abstract class NotPlugin extends JavaPlugin {
      */
     public DatabaseManager.Builder sqliteDatabase(File dataFolder, String fileName) {
         return new ManagedBuilder(DatabaseManager.sqlite(dataFolder, fileName)
-                .executor(foliaAsyncExecutor()));
+                .executor(foliaAsyncExecutor())
+                .maintenance(maintenanceScheduler()));
     }
 
     /**
@@ -94,7 +98,8 @@ public abstract class NotPlugin extends JavaPlugin {
     public DatabaseManager.Builder mariaDatabase(String host, String port, String dbName,
                                                  String user, String password) {
         return new ManagedBuilder(DatabaseManager.mariadb(host, port, dbName, user, password)
-                .executor(foliaAsyncExecutor()));
+                .executor(foliaAsyncExecutor())
+                .maintenance(maintenanceScheduler()));
     }
 
     /**
@@ -113,11 +118,37 @@ public abstract class NotPlugin extends JavaPlugin {
         managedDatabases.add(db);
     }
 
+    /**
+     * Pins each online player's entities in the given UUID-keyed repositories:
+     * loaded on pre-login, written back and released on quit. See
+     * {@link PlayerSessions}.
+     *
+     * <pre>{@code
+     * profiles = db.registerCached(PlayerProfile.class);
+     * playerSessions(profiles);
+     * }</pre>
+     */
+    @SafeVarargs
+    public final PlayerSessions playerSessions(CachedRepository<UUID, ?>... repositories) {
+        return new PlayerSessions(this, repositories).register();
+    }
+
     /** Returns the Folia-safe async {@link Executor} backed by this plugin's async scheduler. */
     public Executor foliaAsyncExecutor() {
         return r -> getServer().getAsyncScheduler().runNow(this, $ -> r.run());
     }
 
+    /**
+     * Returns the {@link MaintenanceScheduler} that runs cache expiry sweeps
+     * and write-behind flushes for this plugin's databases on the Paper async
+     * scheduler. A single timer thread serves every registered cache; it is
+     * shut down after the managed databases on plugin disable.
+     */
+    public MaintenanceScheduler maintenanceScheduler() {
+        if (maintenance == null) maintenance = MaintenanceScheduler.onExecutor(getName(), foliaAsyncExecutor());
+        return maintenance;
+    }
+
     // -----------------------------------------------------------------------
     // LanguageManager – convenience factory pre-wired with the plugin's CFM
     // -----------------------------------------------------------------------
@@ -373,6 +404,7 @@ public abstract class NotPlugin extends JavaPlugin {
     public void onDisable() {
         onPluginDisable();
         managedDatabases.forEach(DatabaseManager::close);
+        if (maintenance != null) maintenance.shutdown();
     }
 
     // -----------------------------------------------------------------------
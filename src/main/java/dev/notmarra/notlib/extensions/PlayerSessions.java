@@ -0,0 +1,114 @@
+package dev.notmarra.notlib.extensions;
+
+import dev.notmarra.notlib.cache.CachedRepository;
+import dev.notmarra.notlib.scheduler.Scheduler;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Ties {@link CachedRepository} sessions to online players: each player's
+ * entities are loaded and pinned during {@link AsyncPlayerPreLoginEvent}, so
+ * the main thread never misses the cache for an online player, and released
+ * on quit, where the repository writes them back in batches.
+ *
+ * <pre>{@code
+ * // in initPlugin(), repositories keyed by the player's UUID:
+ * playerSessions(profiles, economy);
+ * }</pre>
+ */
+public class PlayerSessions implements Listener {
+    // A pre-login that never turns into a join (kicked by another plugin, client gone)
+    private static final long ORPHAN_CHECK_SECONDS = 30;
+
+    private final Plugin plugin;
+    private final Scheduler scheduler;
+    private final List<CachedRepository<UUID, ?>> repositories;
+    // Pre-logins not yet followed by a join, by the token of their orphan check
+    private final Map<UUID, Long> awaitingJoin = new ConcurrentHashMap<>();
+    private final AtomicLong nextToken = new AtomicLong();
+    private boolean isRegistered = false;
+
+    @SafeVarargs
+    public PlayerSessions(Plugin plugin, CachedRepository<UUID, ?>... repositories) {
+        this.plugin = plugin;
+        this.scheduler = new Scheduler(plugin);
+        this.repositories = List.of(repositories);
+    }
+
+    /** Registers the listener and opens sessions for players already online (e.g. after /reload). */
+    public PlayerSessions register() {
+        if (isRegistered) return this;
+        isRegistered = true;
+
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            repositories.forEach(repo -> repo.openSessionAsync(uuid));
+        }
+        return this;
+    }
+
+    /** Unregisters the listener and closes the session of every online player. */
+    public void unregister() {
+        if (!isRegistered) return;
+        isRegistered = false;
+
+        HandlerList.unregisterAll(this);
+        for (Player player : Bukkit.getOnlinePlayers()) close(player.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        UUID uuid = event.getUniqueId();
+        long token = nextToken.incrementAndGet();
+        awaitingJoin.put(uuid, token);
+        for (CachedRepository<UUID, ?> repo : repositories) {
+            try {
+                repo.openSession(uuid); // this event runs off the main thread and may block
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Could not preload session for " + uuid, e);
+            }
+        }
+        // Only this pre-login's session: a join or a newer pre-login for the same UUID takes the token away
+        scheduler.asyncDelayed(() -> {
+            if (awaitingJoin.remove(uuid, token) && Bukkit.getPlayer(uuid) == null) close(uuid);
+        }, ORPHAN_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        if (awaitingJoin.remove(uuid) != null) return;
+        // The orphan check already gave up on this login (e.g. a long resource-pack
+        // phase); reopening also cancels a release that is still pending
+        repositories.forEach(repo -> repo.openSessionAsync(uuid));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        close(event.getPlayer().getUniqueId());
+    }
+
+    private void close(UUID uuid) {
+        for (CachedRepository<UUID, ?> repo : repositories) {
+            if (repo.hasSession(uuid)) repo.closeSession(uuid);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package dev.notmarra.notlib.test.cache;
+
+import dev.notmarra.notlib.cache.CacheEvictionPolicy;
+import dev.notmarra.notlib.cache.NotCache;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmarks for {@link NotCache}.
+ *
+ * <ol>
+ *   <li><b>Read contention</b> – preloads a warm LRU cache and hammers it with
+ *       {@code get()} from 1..N threads, once with a single segment (the old
+ *       global lock) and once with one segment per core. With one segment
+ *       throughput flattens (or drops) as threads are added; with striping it
+ *       should grow roughly with the core count.</li>
+ *   <li><b>Hit-path allocation</b> – measures bytes allocated by the calling
+ *       thread per cache hit for {@code getIfPresent()} and {@code get()}.
+ *       {@code getIfPresent()} should report 0 B/op.</li>
+ * </ol>
+ *
+ * Run from the IDE or with:
+ * <pre>{@code
+ * java -cp notlib.jar dev.notmarra.notlib.test.cache.NotCacheBenchmark
+ * }</pre>
+ */
+public class NotCacheBenchmark {
+
+    private static final int KEYS = 10_000;
+    private static final long WARMUP_MILLIS = 1_000;
+    private static final long MEASURE_MILLIS = 3_000;
+    private static final int ALLOCATION_ROUNDS = 5_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("NotCache read contention - " + cores + " cores, " + KEYS + " keys");
+        System.out.printf("%-8s %18s %18s%n", "threads", "1 segment (ops/s)", cores + " segments (ops/s)");
+
+        for (int threads = 1; threads <= cores * 2; threads *= 2) {
+            long single  = measure(1, threads);
+            long striped = measure(cores, threads);
+            System.out.printf("%-8d %18d %18d%n", threads, single, striped);
+        }
+
+        System.out.println();
+        System.out.println("NotCache hit-path allocation - " + ALLOCATION_ROUNDS + " hits per policy");
+        for (CacheEvictionPolicy policy : CacheEvictionPolicy.values()) {
+            System.out.printf("%-12s getIfPresent %6.2f B/op   get %6.2f B/op%n", policy,
+                    allocatedPerHit(policy, false), allocatedPerHit(policy, true));
+        }
+    }
+
+    private static double allocatedPerHit(CacheEvictionPolicy policy, boolean optional) {
+        NotCache<Integer, String> cache = NotCache.<Integer, String>builder()
+                .maxSize(KEYS)
+                .ttlMinutes(10)
+                .evictionPolicy(policy)
+                .cleanupIntervalMillis(0)
+                .build();
+        // Pre-boxed keys so autoboxing does not show up as cache allocation
+        Integer[] keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+            cache.put(keys[i], "value-" + i);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        // Warm up first so the JIT has compiled the hit path before measuring
+        long sink = readAll(cache, keys, optional);
+        long before = threads.getThreadAllocatedBytes(tid);
+        sink += readAll(cache, keys, optional);
+        long after = threads.getThreadAllocatedBytes(tid);
+        cache.shutdown();
+
+        if (sink == 42) System.out.println(); // keep the loop from being optimised away
+        return (double) (after - before) / ALLOCATION_ROUNDS;
+    }
+
+    private static long readAll(NotCache<Integer, String> cache, Integer[] keys, boolean optional) {
+        long sink = 0;
+        for (int i = 0; i < ALLOCATION_ROUNDS; i++) {
+            Integer key = keys[i % KEYS];
+            sink += optional ? cache.get(key).map(String::length).orElse(0) : cache.getIfPresent(key).length();
+        }
+        return sink;
+    }
+
+    private static long measure(int segments, int threads) throws InterruptedException {
+        NotCache<Integer, String> cache = NotCache.<Integer, String>builder()
+                .maxSize(KEYS)
+                .ttlMillis(0)
+                .evictionPolicy(CacheEvictionPolicy.LRU)
+                .cleanupIntervalMillis(0)
+                .concurrencyLevel(segments)
+                .build();
+        for (int i = 0; i < KEYS; i++) cache.put(i, "value-" + i);
+
+        LongAdder ops = new LongAdder();
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long local = 0;
+                while (running.get()) {
+                    cache.get(random.nextInt(KEYS));
+                    if (measuring.get()) local++;
+                }
+                ops.add(local);
+                done.countDown();
+            }, "NotCacheBenchmark-" + t);
+            worker.setDaemon(true);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+
+        Thread.sleep(WARMUP_MILLIS);
+        measuring.set(true);
+        Thread.sleep(MEASURE_MILLIS);
+        measuring.set(false);
+        running.set(false);
+        done.await();
+        cache.shutdown();
+
+        return ops.sum() * 1000 / MEASURE_MILLIS;
+    }
+}
@@ -28,6 +28,7 @@ public class CachedRepositoryTest {
 
     private final Plugin plugin;
     private final Logger log;
+    private final SQLite sqlite;
 
     // ── WRITE_THROUGH repo (safe, consistent) ────────────────────────────────
     private final CachedRepository<UUID, PlayerProfile> profileRepo;
@@ -39,7 +40,7 @@ public class CachedRepositoryTest {
         this.plugin = plugin;
         this.log = plugin.getLogger();
 
-        SQLite sqlite = new SQLite().setup(
+        sqlite = new SQLite().setup(
                 Database.generateProperties(plugin.getDataFolder(), "cached_data")
         );
 
@@ -145,6 +146,42 @@ public class CachedRepositoryTest {
                         + profileRepo.getCacheStats()));
     }
 
+    // ── FULLY RESIDENT RELOAD (WRITE_BEHIND) ─────────────────────────────────
+
+    /**
+     * Invalidating one row makes the next query reload a fully resident
+     * table; an unflushed update to another row must survive that reload.
+     */
+    public void checkResidentReloadKeepsDirtyWrites() {
+        CachedRepository<UUID, PlayerProfile> residentRepo = CachedRepository
+                .<UUID, PlayerProfile>builder(sqlite, PlayerProfile.class)
+                .writeStrategy(WriteStrategy.WRITE_BEHIND)
+                .flushIntervalSeconds(3600)        // only the explicit flush below
+                .fullyResident()
+                .build();
+        residentRepo.createTable();
+
+        PlayerProfile kept = new PlayerProfile(UUID.randomUUID(), "Delta", 1);
+        PlayerProfile other = new PlayerProfile(UUID.randomUUID(), "Epsilon", 1);
+        residentRepo.insertAll(List.of(kept, other));
+        residentRepo.flush();
+
+        residentRepo.update(new PlayerProfile(kept.getUuid(), kept.getName(), 42)); // dirty, not flushed
+        residentRepo.invalidate(other.getUuid());
+        residentRepo.query().findAll();                                            // reloads the table
+
+        int cached = residentRepo.findById(kept.getUuid()).map(PlayerProfile::getLevel).orElse(-1);
+        residentRepo.flush();
+        int stored = profileRepo.query().where("id", "=", kept.getUuid().toString())
+                .findFirst().map(PlayerProfile::getLevel).orElse(-1);
+        if (cached == 42 && stored == 42) {
+            log.info("[Cache] Resident reload kept the unflushed update.");
+        } else {
+            log.warning("[Cache] Resident reload lost the unflushed update: cached=" + cached + " stored=" + stored);
+        }
+        residentRepo.close();
+    }
+
     // ── STATS ─────────────────────────────────────────────────────────────────
 
     public void logCacheStats() {
@@ -0,0 +1,112 @@
+package dev.notmarra.notlib.test.database;
+
+import dev.notmarra.notlib.database.Database;
+import dev.notmarra.notlib.database.EntityMapper;
+import dev.notmarra.notlib.database.EntityTable;
+import dev.notmarra.notlib.database.repository.EntityRepository;
+import dev.notmarra.notlib.database.type.SQLite;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Benchmark for {@link EntityMapper}: {@code findAll()} over {@value #ROWS}
+ * {@link PlayerProfile} rows in a temporary SQLite database.
+ *
+ * <ol>
+ *   <li><b>Mapping only</b> – the same {@code SELECT *} mapped with
+ *       {@link EntityMapper#reflective} (by-name {@code getObject},
+ *       {@code Field.set}) and {@link EntityMapper#generated} (column
+ *       indexes resolved once, method handles, typed getters).</li>
+ *   <li><b>End to end</b> – {@link EntityRepository#findAll()}, which uses the
+ *       generated mapper, including the query itself.</li>
+ * </ol>
+ *
+ * Run from the IDE or with:
+ * <pre>{@code
+ * java -cp notlib.jar:sqlite-jdbc.jar:HikariCP.jar dev.notmarra.notlib.test.database.EntityMapperBenchmark
+ * }</pre>
+ */
+public class EntityMapperBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        File dir = Files.createTempDirectory("notlib-mapper-bench").toFile();
+        Database db = new SQLite().setup(Database.generateProperties(dir, "bench"));
+        try {
+            EntityRepository<PlayerProfile> repo = new EntityRepository<>(db, PlayerProfile.class);
+            repo.createTable();
+            List<PlayerProfile> rows = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) rows.add(new PlayerProfile(UUID.randomUUID(), "player-" + i, i % 100));
+            repo.insertAll(rows);
+
+            EntityTable<PlayerProfile> table = new EntityTable<>(PlayerProfile.class, db.getDialect());
+            EntityMapper<PlayerProfile> reflective = EntityMapper.reflective(table);
+            EntityMapper<PlayerProfile> generated = EntityMapper.generated(table);
+
+            System.out.println("EntityMapper findAll() - " + ROWS + " rows, best of " + MEASURE_ROUNDS);
+            System.out.printf("%-24s %12s %14s%n", "", "ms/findAll", "ns/row");
+            // Alternate the two so neither benefits from running second
+            long bestReflective = Long.MAX_VALUE;
+            long bestGenerated = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++) {
+                long r = timeMapping(db, reflective, table);
+                long g = timeMapping(db, generated, table);
+                if (round >= WARMUP_ROUNDS) {
+                    bestReflective = Math.min(bestReflective, r);
+                    bestGenerated = Math.min(bestGenerated, g);
+                }
+            }
+            print("reflection", bestReflective);
+            print("generated", bestGenerated);
+            System.out.printf("%-24s %11.2fx%n", "speedup", (double) bestReflective / bestGenerated);
+
+            long bestRepo = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++) {
+                long start = System.nanoTime();
+                int size = repo.findAll().size();
+                long nanos = System.nanoTime() - start;
+                if (size != ROWS) throw new IllegalStateException("findAll returned " + size + " rows");
+                if (round >= WARMUP_ROUNDS) bestRepo = Math.min(bestRepo, nanos);
+            }
+            print("repo.findAll()", bestRepo);
+        } finally {
+            db.close();
+            new File(dir, "bench.db").delete();
+            new File(dir, "bench.db-wal").delete();
+            new File(dir, "bench.db-shm").delete();
+            dir.delete();
+        }
+    }
+
+    private static long timeMapping(Database db, EntityMapper<PlayerProfile> mapper, EntityTable<PlayerProfile> table)
+            throws Exception {
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            long start = System.nanoTime();
+            ResultSet rs = stmt.executeQuery("SELECT * FROM " + table.getTableName());
+            EntityMapper.RowReader<PlayerProfile> reader = mapper.reader(rs);
+            long levels = 0;
+            int count = 0;
+            while (rs.next()) {
+                levels += reader.read(rs).getLevel();
+                count++;
+            }
+            long nanos = System.nanoTime() - start;
+            if (count != ROWS || levels == 42) throw new IllegalStateException("read " + count + " rows");
+            return nanos;
+        }
+    }
+
+    private static void print(String label, long nanos) {
+        System.out.printf("%-24s %12.1f %14.1f%n", label, nanos / 1_000_000.0, (double) nanos / ROWS);
+    }
+}